@@ -22,14 +22,17 @@ import dev.dejvokep.clickspersecond.command.*;
 import dev.dejvokep.clickspersecond.data.DataStorage;
 import dev.dejvokep.clickspersecond.data.DatabaseStorage;
 import dev.dejvokep.clickspersecond.data.FileStorage;
+import dev.dejvokep.clickspersecond.data.LogStorage;
+import dev.dejvokep.clickspersecond.data.MappedStorage;
 import dev.dejvokep.clickspersecond.display.implementation.ActionBarDisplay;
 import dev.dejvokep.clickspersecond.display.implementation.BossBarDisplay;
 import dev.dejvokep.clickspersecond.display.Display;
 import dev.dejvokep.clickspersecond.display.implementation.TitleDisplay;
 import dev.dejvokep.clickspersecond.handler.ClickHandler;
-import dev.dejvokep.clickspersecond.handler.ImmediateHandler;
-import dev.dejvokep.clickspersecond.handler.RatedHandler;
 import dev.dejvokep.clickspersecond.handler.sampler.Sampler;
+import dev.dejvokep.clickspersecond.handler.strategy.BuiltinStrategy;
+import dev.dejvokep.clickspersecond.handler.strategy.SamplingStrategies;
+import dev.dejvokep.clickspersecond.handler.strategy.SamplingStrategy;
 import dev.dejvokep.clickspersecond.listener.EventListeners;
 import dev.dejvokep.boostedyaml.YamlDocument;
 import dev.dejvokep.boostedyaml.dvs.versioning.BasicVersioning;
@@ -37,6 +40,9 @@ import dev.dejvokep.boostedyaml.settings.dumper.DumperSettings;
 import dev.dejvokep.boostedyaml.settings.general.GeneralSettings;
 import dev.dejvokep.boostedyaml.settings.loader.LoaderSettings;
 import dev.dejvokep.boostedyaml.settings.updater.UpdaterSettings;
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import dev.dejvokep.clickspersecond.utils.clock.SystemClock;
+import dev.dejvokep.clickspersecond.utils.clock.TickClock;
 import dev.dejvokep.clickspersecond.utils.messaging.Messenger;
 import dev.dejvokep.clickspersecond.utils.placeholders.PlaceholderReplacer;
 import dev.dejvokep.clickspersecond.utils.placeholders.StatsExpansion;
@@ -54,6 +60,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
@@ -72,6 +79,8 @@ public class ClicksPerSecond extends JavaPlugin implements Listener {
     private DataStorage dataStorage;
 
     // Internals
+    private final SamplingStrategies samplingStrategies = new SamplingStrategies();
+    private Clock clock;
     private ClickHandler<? extends Sampler> clickHandler;
     private PlaceholderReplacer placeholderReplacer;
     private WatchManager watchManager;
@@ -92,14 +101,20 @@ public class ClicksPerSecond extends JavaPlugin implements Listener {
         }
 
         // Initialize
+        clock = config.getBoolean("cached-clock") && !config.getBoolean("click-analytics") ? new TickClock(this, SystemClock.INSTANCE) : SystemClock.INSTANCE;
         placeholderReplacer = new PlaceholderReplacer(this);
         watchManager = new WatchManager();
         messenger = new Messenger(this);
         Updater.watch(this);
 
         // Handlers
-        int samplingRate = Math.max(config.getInt("sampling-rate"), 0);
-        clickHandler = samplingRate == 0 ? new ImmediateHandler(this) : new RatedHandler(this, samplingRate);
+        String samplingMode = config.getString("sampling-mode");
+        SamplingStrategy strategy = samplingStrategies.get(samplingMode);
+        if (strategy == null) {
+            getLogger().warning("Sampling mode \"" + samplingMode + "\" is not registered (available: " + String.join(", ", samplingStrategies.getNames()) + ")! Using STANDARD instead.");
+            strategy = BuiltinStrategy.STANDARD;
+        }
+        clickHandler = strategy.createHandler(this);
 
         // Add displays
         displays.add(new ActionBarDisplay(this));
@@ -121,6 +136,7 @@ public class ClicksPerSecond extends JavaPlugin implements Listener {
             new DeleteCommand(this, commandManager);
             new WatchCommand(this, commandManager);
             new ReloadCommand(this, commandManager);
+            new SourcesCommand(this, commandManager);
             new ConfirmCommand(this, commandManager);
         } catch (Exception ex) {
             getLogger().log(Level.SEVERE, "An unexpected error occurred whilst registering commands!", ex);
@@ -129,7 +145,7 @@ public class ClicksPerSecond extends JavaPlugin implements Listener {
         // Run async
         Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
             // Storage
-            dataStorage = config.getString("storage").equalsIgnoreCase("FILE") ? new FileStorage(this) : new DatabaseStorage(this);
+            dataStorage = config.getString("storage").equalsIgnoreCase("FILE") ? createFileStorage() : new DatabaseStorage(this);
 
             // Back to sync
             Bukkit.getScheduler().runTask(this, () -> {
@@ -153,9 +169,30 @@ public class ClicksPerSecond extends JavaPlugin implements Listener {
 
     @Override
     public void onDisable() {
+        if (clickHandler != null)
+            clickHandler.close();
+        if (clock instanceof TickClock)
+            ((TickClock) clock).stop();
         dataStorage.close();
     }
 
+    /**
+     * Creates a file data storage with the configured engine.
+     *
+     * @return the created data storage
+     */
+    @NotNull
+    private DataStorage createFileStorage() {
+        switch (config.getString("file-engine").toUpperCase(Locale.ROOT)) {
+            case "LOG":
+                return new LogStorage(this);
+            case "MAPPED":
+                return new MappedStorage(this);
+            default:
+                return new FileStorage(this);
+        }
+    }
+
     /**
      * Returns the plugin configuration.
      *
@@ -167,6 +204,16 @@ public class ClicksPerSecond extends JavaPlugin implements Listener {
     }
 
 
+    /**
+     * Returns the clock.
+     *
+     * @return the clock
+     */
+    @NotNull
+    public Clock getClock() {
+        return clock;
+    }
+
     /**
      * Returns the data storage.
      *
@@ -177,6 +224,16 @@ public class ClicksPerSecond extends JavaPlugin implements Listener {
         return dataStorage;
     }
 
+    /**
+     * Returns the registry of sampling strategies. Strategies must be registered before the plugin is enabled.
+     *
+     * @return the sampling strategies
+     */
+    @NotNull
+    public SamplingStrategies getSamplingStrategies() {
+        return samplingStrategies;
+    }
+
     /**
      * Returns the click handler.
      *
@@ -59,7 +59,7 @@ public class DeleteCommand {
                     // Delete all
                     if (target.equals("*") || target.equals("all")) {
                         plugin.getMessenger().send(context, MESSAGE_REQUEST_SENT);
-                        plugin.getClickHandler().getSamplers().values().forEach(Sampler::wipeData);
+                        plugin.getClickHandler().getSamplers().forEachValue(Sampler::wipeData);
                         plugin.getDataStorage().deleteAll().whenComplete((result, exception) -> handleResult(result, context));
                         return;
                     }
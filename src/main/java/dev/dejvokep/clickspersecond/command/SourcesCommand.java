@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.command;
+
+import cloud.commandframework.CommandManager;
+import cloud.commandframework.meta.CommandMeta;
+import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.data.SyncQueue;
+import dev.dejvokep.clickspersecond.listener.ClickListeners;
+import dev.dejvokep.clickspersecond.listener.ClickSource;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import static dev.dejvokep.clickspersecond.utils.messaging.Messenger.MESSAGE_PREFIX;
+
+/**
+ * Handler for the <code>/cps sources</code> command.
+ */
+public class SourcesCommand {
+
+    /**
+     * Registers the command to the given manager.
+     *
+     * @param plugin  the plugin
+     * @param manager the manager
+     */
+    public SourcesCommand(@NotNull ClicksPerSecond plugin, @NotNull CommandManager<CommandSender> manager) {
+        // Register
+        manager.command(manager.commandBuilder("cps", "clickspersecond").literal("sources").permission("cps.sources")
+                .meta(CommandMeta.DESCRIPTION, "Displays amounts of accepted and rejected click events by their source and sync queue metrics.")
+                .handler(context -> {
+                    // Not yet loaded
+                    if (plugin.getListeners() == null)
+                        return;
+
+                    // Listeners
+                    ClickListeners listeners = plugin.getListeners().getClickListeners();
+                    // Send
+                    plugin.getMessenger().send(context, MESSAGE_PREFIX + "sources.header");
+                    for (ClickSource source : ClickSource.values())
+                        plugin.getMessenger().send(context, MESSAGE_PREFIX + (listeners.isEnabled(source) ? "sources.enabled" : "sources.disabled"), message -> message
+                                .replace("{source}", source.name())
+                                .replace("{accepted}", String.valueOf(listeners.getAccepted(source)))
+                                .replace("{rejected}", String.valueOf(listeners.getRejected(source))));
+                    plugin.getMessenger().send(context, MESSAGE_PREFIX + "sources.overflow", message -> message.replace("{overflow}", String.valueOf(plugin.getClickHandler().getOverflow())));
+                    // Sync queue
+                    SyncQueue sync = plugin.getDataStorage().getSyncQueue();
+                    plugin.getMessenger().send(context, MESSAGE_PREFIX + "sources.sync", message -> message
+                            .replace("{pending}", String.valueOf(sync.getPending()))
+                            .replace("{peak}", String.valueOf(sync.getHighWaterMark()))
+                            .replace("{synced}", String.valueOf(sync.getSynced()))
+                            .replace("{coalesced}", String.valueOf(sync.getCoalesced()))
+                            .replace("{saturated}", String.valueOf(sync.getSaturated())));
+                }).build());
+    }
+
+}
\ No newline at end of file
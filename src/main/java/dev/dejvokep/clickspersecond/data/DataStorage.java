@@ -20,22 +20,71 @@ import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
 import org.bukkit.Bukkit;
 import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 
 /**
  * An abstract class for data storages.
+ * <p>
+ * Record changes are queued in a {@link SyncQueue}, which keeps only the highest pending record per player, and are
+ * synced in batches by a single persistence thread owned by the storage. {@link #sync(Collection)} is, therefore,
+ * always called on that thread and may block.
+ * <p>
+ * If enabled, queued changes are also appended to a {@link RecordJournal}, which is committed every tick (much more
+ * often than the queue is synced) and truncated once a sync has been confirmed. Changes which were not synced before
+ * a crash are replayed from the journal on the next startup.
  */
 public abstract class DataStorage {
 
+    /**
+     * Default soft limit of the sync queue.
+     */
+    private static final int DEFAULT_SYNC_LIMIT = 1000;
+
+    /**
+     * Milliseconds per server tick.
+     */
+    private static final long MILLIS_PER_TICK = 50L;
+
+    /**
+     * Max time to wait for the persistence thread to finish the last sync when closing, in seconds.
+     */
+    private static final long CLOSE_TIMEOUT = 10L;
+
+    /**
+     * Name of the journal file.
+     */
+    private static final String JOURNAL_FILE = "sync-journal.bin";
+
     // Plugin
     private final ClicksPerSecond plugin;
 
     // Tasks
-    private BukkitTask syncTask, leaderboardTask;
+    private BukkitTask leaderboardTask;
+    private ScheduledFuture<?> syncTask, journalTask;
+    // Persistence thread
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ClicksPerSecond Sync");
+        thread.setDaemon(true);
+        return thread;
+    });
     // Sync queue
-    private Set<PlayerInfo> sync = new HashSet<>();
+    private final SyncQueue sync = new SyncQueue(DEFAULT_SYNC_LIMIT);
+    // If an early flush is pending
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // Journal
+    private final RecordJournal journal;
 
     // Leaderboard
     private List<PlayerInfo> leaderboard = Collections.emptyList();
@@ -43,7 +92,7 @@ public abstract class DataStorage {
     private long leaderboardExpiration;
 
     // If ready
-    private boolean ready = false;
+    private volatile boolean ready = false;
 
     /**
      * Initializes the data storage.
@@ -54,6 +103,29 @@ public abstract class DataStorage {
     public DataStorage(@NotNull ClicksPerSecond plugin, @NotNull String type) {
         this.plugin = plugin;
         plugin.getLogger().info("Using " + type + " to save CPS data.");
+        this.journal = plugin.getConfiguration().getBoolean("data.journal.enabled") ? openJournal() : null;
+    }
+
+    /**
+     * Opens the journal and queues all changes which were not synced before the last shutdown.
+     *
+     * @return the opened journal, or <code>null</code> if failed to open
+     */
+    @Nullable
+    private RecordJournal openJournal() {
+        try {
+            // Open
+            RecordJournal journal = new RecordJournal(new File(plugin.getDataFolder(), JOURNAL_FILE).toPath());
+            // Replay
+            List<PlayerInfo> replayed = journal.replay(plugin.getClock());
+            replayed.forEach(sync::offer);
+            if (!replayed.isEmpty())
+                plugin.getLogger().info("Replayed " + replayed.size() + " unsynced record changes from the journal.");
+            return journal;
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to open the sync journal! Continuing without it.", ex);
+            return null;
+        }
     }
 
     /**
@@ -62,33 +134,59 @@ public abstract class DataStorage {
     public void reload() {
         // Cancel
         if (syncTask != null)
-            syncTask.cancel();
+            syncTask.cancel(false);
+        if (journalTask != null)
+            journalTask.cancel(false);
         if (leaderboardTask != null)
             leaderboardTask.cancel();
 
         // Set
         this.leaderboardLimit = Math.max(plugin.getConfiguration().getInt("data.leaderboard.limit"), 1);
         this.leaderboardExpiration = Math.max(plugin.getConfiguration().getLong("data.leaderboard.expiration"), 1L);
+        sync.setLimit(Math.max(plugin.getConfiguration().getInt("data.sync-limit"), 1));
 
         // Schedule sync task
-        syncTask = Bukkit.getScheduler().runTaskTimer(plugin, () -> {
-            // If not any
-            if (sync.isEmpty() || !ready)
-                return;
-
-            // Queued
-            Set<PlayerInfo> queued = sync;
-            // Clear
-            sync = new HashSet<>();
-
-            // Sync
-            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> sync(queued));
-        }, 0L, Math.max(plugin.getConfiguration().getInt("data.sync-rate"), 1));
+        long rate = Math.max(plugin.getConfiguration().getInt("data.sync-rate"), 1) * MILLIS_PER_TICK;
+        syncTask = writer.scheduleWithFixedDelay(this::flush, 0L, rate, TimeUnit.MILLISECONDS);
+        // Schedule journal commits
+        if (journal != null)
+            journalTask = writer.scheduleWithFixedDelay(this::commitJournal, MILLIS_PER_TICK, MILLIS_PER_TICK, TimeUnit.MILLISECONDS);
 
         // Fetch leaderboard
         fetchBoard();
     }
 
+    /**
+     * Discards pending sync of the given player's record, if any. Should be called when the record is deleted.
+     *
+     * @param uuid the ID of the player
+     */
+    protected void discard(@NotNull UUID uuid) {
+        sync.discard(uuid);
+        if (journal != null)
+            journal.appendDeletion(uuid);
+    }
+
+    /**
+     * Returns if the given player's record has been discarded since the sync queue was last drained, in which case
+     * drained info of the player is outdated and must not be synced.
+     *
+     * @param uuid the ID of the player
+     * @return if the record has been discarded
+     */
+    protected boolean isDiscarded(@NotNull UUID uuid) {
+        return sync.isDiscarded(uuid);
+    }
+
+    /**
+     * Discards all pending syncs. Should be called when all records are deleted.
+     */
+    protected void discardAll() {
+        sync.discardAll();
+        if (journal != null)
+            journal.appendWipe();
+    }
+
     /**
      * Passes the given fetched info to the appropriate sampler.
      *
@@ -99,13 +197,84 @@ public abstract class DataStorage {
     }
 
     /**
-     * Queues the given info for sync.
+     * Queues the given info for sync. If the queue is saturated, requests an early flush. Can be called from any
+     * thread.
      *
      * @param info the info to queue
      */
     public void sync(@NotNull PlayerInfo info) {
-        sync.remove(info);
-        sync.add(info);
+        // Queue first, so everything committed to the journal before a drain is also in the drained batch
+        boolean saturated = sync.offer(info);
+        if (journal != null)
+            journal.append(info);
+        // Flush early
+        if (saturated && flushRequested.compareAndSet(false, true))
+            writer.execute(this::flush);
+    }
+
+    /**
+     * Drains the sync queue and syncs the drained info. If the sync has been confirmed, truncates the journal; if it
+     * has failed, the drained info is queued again. Must only be called on the persistence thread.
+     */
+    private void flush() {
+        // Early flush handled
+        flushRequested.set(false);
+        // If not any
+        if (sync.isEmpty() || !ready)
+            return;
+
+        // Commit the journal, so it only contains changes which are about to be drained
+        commitJournal();
+        // Drain
+        List<PlayerInfo> drained = sync.drain();
+        boolean synced;
+        try {
+            synced = sync(drained);
+        } catch (Exception ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to sync player information!", ex);
+            synced = false;
+        }
+
+        // Failed, retry with the next sync
+        if (!synced) {
+            sync.requeue(drained);
+            return;
+        }
+
+        // Confirmed
+        if (journal != null) {
+            try {
+                journal.truncate();
+            } catch (IOException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to truncate the sync journal!", ex);
+            }
+        }
+    }
+
+    /**
+     * Runs the given task on the persistence thread, after all syncs scheduled before it.
+     *
+     * @param task the task to run
+     * @param <T>  type of the result
+     * @return the result of the task
+     */
+    @NotNull
+    protected <T> CompletableFuture<T> submit(@NotNull Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, writer);
+    }
+
+    /**
+     * Commits changes appended to the journal, if enabled. Must only be called on the persistence thread.
+     */
+    private void commitJournal() {
+        if (journal == null)
+            return;
+
+        try {
+            journal.commit();
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to commit the sync journal!", ex);
+        }
     }
 
     /**
@@ -164,8 +333,7 @@ public abstract class DataStorage {
     }
 
     /**
-     * Returns the leaderboard fetch limit (max places to retrieve). This limit (or any other) is ignored by the {@link
-     * FileStorage}, which always caches all data.
+     * Returns the leaderboard fetch limit (max places to retrieve).
      *
      * @return the leaderboard fetch limit
      */
@@ -174,9 +342,44 @@ public abstract class DataStorage {
     }
 
     /**
-     * Closes the data storage and its connections.
+     * Closes the data storage and its connections. Syncs all pending info and stops the persistence thread, waiting
+     * for it to finish. Implementations should call this first, before closing their connections.
+     */
+    public void close() {
+        // Cancel
+        if (syncTask != null)
+            syncTask.cancel(false);
+        if (journalTask != null)
+            journalTask.cancel(false);
+
+        // Last sync (anything left unsynced stays in the journal)
+        writer.execute(() -> {
+            flush();
+            commitJournal();
+            closeJournal();
+        });
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS))
+                plugin.getLogger().warning("Timed out while syncing pending player information!");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Closes the journal, if enabled. Must only be called on the persistence thread.
      */
-    public abstract void close();
+    private void closeJournal() {
+        if (journal == null)
+            return;
+
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to close the sync journal!", ex);
+        }
+    }
 
     /**
      * Returns if the storage has instant fetching.
@@ -237,8 +440,7 @@ public abstract class DataStorage {
     public abstract CompletableFuture<Boolean> deleteAll();
 
     /**
-     * Fetches the leaderboard with the provided fetch limit (ignored by {@link FileStorage}). Caching is not handled by
-     * the method.
+     * Fetches the leaderboard with the provided fetch limit. Caching is not handled by the method.
      * <p>
      * <i>The returned future will not contain any exceptions under normal circumstances, so it is redundant to process
      * them.</i>
@@ -250,11 +452,36 @@ public abstract class DataStorage {
     protected abstract CompletableFuture<List<PlayerInfo>> fetchLeaderboard(int limit);
 
     /**
-     * Syncs the given queued info.
+     * Syncs the given queued info. Called on the persistence thread.
+     * <p>
+     * Returns if the info has been persisted; if not, it is queued again and synced with the next batch.
      *
      * @param queued the queued info to sync
+     * @return if the sync was successful
+     */
+    protected abstract boolean sync(@NotNull Collection<PlayerInfo> queued);
+
+    /**
+     * Returns the sync queue, including its backpressure metrics.
+     *
+     * @return the sync queue
      */
-    protected abstract void sync(@NotNull Set<PlayerInfo> queued);
+    @NotNull
+    public SyncQueue getSyncQueue() {
+        return sync;
+    }
+
+    /**
+     * Returns the rank (place in the leaderboard) of the given player, or <code>-1</code> if the player has no record,
+     * or if the storage does not index records by rank (only the YAML file storage does, other storages would have to
+     * scan all records). Players with equal records share the rank.
+     *
+     * @param uuid the ID of the player
+     * @return the rank of the player, starting from <code>1</code>
+     */
+    public long getRank(@NotNull UUID uuid) {
+        return -1;
+    }
 
     /**
      * Returns the cached leaderboard.
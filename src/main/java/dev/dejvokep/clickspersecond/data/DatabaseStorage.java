@@ -16,6 +16,9 @@
 package dev.dejvokep.clickspersecond.data;
 
 import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.utils.collection.UUIDMap;
+import dev.dejvokep.clickspersecond.utils.collection.UUIDSet;
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
 import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
@@ -40,6 +43,10 @@ public class DatabaseStorage extends DataStorage {
      * Statement for creating the database table.
      */
     private static final String SQL_CREATE_TABLE = "CREATE TABLE IF NOT EXISTS %s(uuid CHAR(36), cps INT, t BIGINT(20) UNSIGNED, toggle BOOLEAN, PRIMARY KEY(uuid))";
+    /**
+     * Statement for creating the table of per-channel records.
+     */
+    private static final String SQL_CREATE_CHANNELS_TABLE = "CREATE TABLE IF NOT EXISTS %s_channels(uuid CHAR(36), channel TINYINT, cps INT, t BIGINT(20) UNSIGNED, PRIMARY KEY(uuid, channel))";
     /**
      * Statement for deleting all data.
      */
@@ -48,6 +55,14 @@ public class DatabaseStorage extends DataStorage {
      * Statement for deleting specific data.
      */
     private static final String SQL_DELETE = "DELETE FROM %s WHERE uuid=?";
+    /**
+     * Statement for syncing per-channel records (the time is assigned first, as assignments are evaluated in order).
+     */
+    private static final String SQL_SYNC_CHANNEL = "INSERT INTO %s_channels(uuid, channel, cps, t) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE t = CASE WHEN cps < VALUES(cps) THEN VALUES(t) ELSE t END, cps = CASE WHEN cps < VALUES(cps) THEN VALUES(cps) ELSE cps END";
+    /**
+     * Statement for fetching per-channel records of multiple players.
+     */
+    private static final String SQL_FETCH_CHANNELS = "SELECT uuid, channel, cps, t FROM %s_channels WHERE uuid IN (%s)";
     /**
      * Statement for syncing data.
      */
@@ -72,21 +87,27 @@ public class DatabaseStorage extends DataStorage {
      * Cache clear delay in ticks.
      */
     private static final long CACHE_CLEAR_DELAY = 20L;
+    /**
+     * Nanoseconds per server tick.
+     */
+    private static final long NANOS_PER_TICK = 50_000_000L;
 
     // Data source
     private final HikariDataSource dataSource;
     private final String table;
+    // If to store per-channel records
+    private final boolean channels;
 
-    // Fetching
+    // Fetching (expiration in nanoseconds)
     private final long fetchExpiration, fetchRate;
     private final int fetchSize;
 
     // Caching
-    private final Map<UUID, PlayerInfo> cache = new HashMap<>();
+    private final UUIDMap<PlayerInfo> cache = new UUIDMap<>();
     private final Queue<PlayerInfo> expirationQueue = new LinkedList<>();
 
     // Fetch queue
-    private Set<UUID> fetch = new HashSet<>();
+    private UUIDSet fetch = new UUIDSet();
 
     /**
      * Initializes the data storage.
@@ -118,7 +139,8 @@ public class DatabaseStorage extends DataStorage {
         config.addDataSourceProperty("maintainTimeStats", false);
         // Set
         this.table = section.getString("table");
-        this.fetchExpiration = plugin.getConfiguration().getLong("data.fetch.expiration");
+        this.channels = plugin.getClickHandler().isMultiChannel();
+        this.fetchExpiration = plugin.getConfiguration().getLong("data.fetch.expiration") * NANOS_PER_TICK;
         this.fetchSize = plugin.getConfiguration().getInt("data.fetch.batch.size");
         this.fetchRate = plugin.getConfiguration().getLong("data.fetch.batch.rate");
         // Create
@@ -129,6 +151,12 @@ public class DatabaseStorage extends DataStorage {
             try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(String.format(SQL_CREATE_TABLE, table))) {
                 // Execute
                 statement.executeUpdate();
+                // Channels
+                if (channels) {
+                    try (PreparedStatement channelStatement = connection.prepareStatement(String.format(SQL_CREATE_CHANNELS_TABLE, table))) {
+                        channelStatement.executeUpdate();
+                    }
+                }
                 // Ready
                 ready();
             } catch (SQLException ex) {
@@ -139,8 +167,8 @@ public class DatabaseStorage extends DataStorage {
         // Run cache clear task
         Bukkit.getScheduler().runTaskTimer(plugin, () -> {
             // While expired
-            long time = System.currentTimeMillis();
-            while (expirationQueue.size() > 0 && expirationQueue.peek().getFetchTime() + fetchExpiration < time)
+            long time = plugin.getClock().nanoTime();
+            while (expirationQueue.size() > 0 && time - expirationQueue.peek().getFetchTime() > fetchExpiration)
                 cache.remove(expirationQueue.remove().getUniqueId());
         }, CACHE_CLEAR_DELAY, CACHE_CLEAR_DELAY);
 
@@ -150,33 +178,38 @@ public class DatabaseStorage extends DataStorage {
     }
 
     @Override
-    public void sync(@NotNull Set<PlayerInfo> queued) {
-        Bukkit.getScheduler().runTaskAsynchronously(getPlugin(), () -> {
-            // Connection
-            try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(String.format(SQL_SYNC, table))) {
-                // For each
-                for (PlayerInfo info : queued) {
-                    // Set
-                    statement.setString(1, info.getUniqueId().toString());
-                    statement.setInt(2, info.getCPS());
-                    statement.setLong(3, info.getTime());
-                    statement.setBoolean(4, info.getToggle());
-                    // Add
-                    statement.addBatch();
-                }
-                // Execute all
-                statement.executeBatch();
-            } catch (SQLException ex) {
-                getPlugin().getLogger().log(Level.SEVERE, "Failed to execute a batch statement!", ex);
+    public boolean sync(@NotNull Collection<PlayerInfo> queued) {
+        // Connection
+        try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(String.format(SQL_SYNC, table))) {
+            // For each
+            for (PlayerInfo info : queued) {
+                // Set
+                statement.setString(1, info.getUniqueId().toString());
+                statement.setInt(2, info.getCPS());
+                statement.setLong(3, info.getTime());
+                statement.setBoolean(4, info.getToggle());
+                // Add
+                statement.addBatch();
             }
-        });
+            // Execute all
+            statement.executeBatch();
+
+            // Channels
+            if (channels)
+                syncChannels(connection, queued);
+            return true;
+        } catch (SQLException ex) {
+            getPlugin().getLogger().log(Level.SEVERE, "Failed to execute a batch statement!", ex);
+            return false;
+        }
     }
 
     @Override
     public void queueFetch(@NotNull UUID uuid) {
         // If cached
-        if (cache.containsKey(uuid)) {
-            passToSampler(cache.get(uuid));
+        PlayerInfo cached = cache.get(uuid);
+        if (cached != null) {
+            passToSampler(cached);
             return;
         }
 
@@ -197,8 +230,9 @@ public class DatabaseStorage extends DataStorage {
     @NotNull
     public CompletableFuture<PlayerInfo> fetchSingle(@NotNull UUID uuid, boolean skipCache) {
         // If cached
-        if (cache.containsKey(uuid) && !skipCache)
-            return CompletableFuture.completedFuture(cache.get(uuid));
+        PlayerInfo cached = skipCache ? null : cache.get(uuid);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
 
         // Supply
         return CompletableFuture.supplyAsync(() -> {
@@ -210,10 +244,17 @@ public class DatabaseStorage extends DataStorage {
                 ResultSet resultSet = statement.executeQuery();
 
                 // Info
-                PlayerInfo info = resultSet.next() ? PlayerInfo.from(uuid, resultSet.getInt(2), resultSet.getLong(3)) : PlayerInfo.empty(uuid);
+                long fetchTime = getPlugin().getClock().nanoTime();
+                boolean stored = resultSet.next();
+                PlayerInfo info = stored ? PlayerInfo.from(uuid, resultSet.getInt(2), resultSet.getLong(3), fetchTime) : PlayerInfo.empty(uuid, fetchTime);
+                // Channels (the primary record might be empty while a channel record is not, same as for batches)
+                if (channels && stored)
+                    info = withChannels(connection, Collections.singletonList(info)).get(0);
+                // Final
+                PlayerInfo fetched = info;
                 // Refresh
-                Bukkit.getScheduler().runTask(getPlugin(), () -> refresh(info));
-                return info;
+                Bukkit.getScheduler().runTask(getPlugin(), () -> refresh(fetched));
+                return fetched;
             } catch (SQLException ex) {
                 getPlugin().getLogger().log(Level.SEVERE, String.format("Failed to fetch player information of %s!", uuid), ex);
             }
@@ -225,16 +266,26 @@ public class DatabaseStorage extends DataStorage {
     @Override
     @NotNull
     public CompletableFuture<Boolean> delete(@NotNull UUID uuid) {
-        // Delete from cache
+        // Delete from cache and sync queue
         cache.remove(uuid);
+        discard(uuid);
 
-        return CompletableFuture.supplyAsync(() -> {
+        // After syncs in flight
+        return submit(() -> {
             // Connection
             try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(String.format(SQL_DELETE, table))) {
                 // Set
                 statement.setString(1, uuid.toString());
                 // Execute
                 statement.executeUpdate();
+
+                // Channels
+                if (channels) {
+                    try (PreparedStatement channelStatement = connection.prepareStatement(String.format(SQL_DELETE, table + "_channels"))) {
+                        channelStatement.setString(1, uuid.toString());
+                        channelStatement.executeUpdate();
+                    }
+                }
                 return true;
             } catch (SQLException ex) {
                 getPlugin().getLogger().log(Level.SEVERE, String.format("Failed to delete player information of %s!", uuid), ex);
@@ -246,15 +297,24 @@ public class DatabaseStorage extends DataStorage {
     @Override
     @NotNull
     public CompletableFuture<Boolean> deleteAll() {
-        // Clear caches
+        // Clear caches and sync queue
         cache.clear();
         expirationQueue.clear();
+        discardAll();
 
-        return CompletableFuture.supplyAsync(() -> {
+        // After syncs in flight
+        return submit(() -> {
             // Connection
             try (Connection connection = dataSource.getConnection(); PreparedStatement statement = connection.prepareStatement(String.format(SQL_DELETE_ALL, table))) {
                 // Execute
                 statement.executeUpdate();
+
+                // Channels
+                if (channels) {
+                    try (PreparedStatement channelStatement = connection.prepareStatement(String.format(SQL_DELETE_ALL, table + "_channels"))) {
+                        channelStatement.executeUpdate();
+                    }
+                }
                 return true;
             } catch (SQLException ex) {
                 getPlugin().getLogger().log(Level.SEVERE, "Failed to delete all player information!", ex);
@@ -272,13 +332,13 @@ public class DatabaseStorage extends DataStorage {
             return;
 
         // Replace
-        Set<UUID> queued = fetch;
-        fetch = new HashSet<>();
+        UUIDSet queued = fetch;
+        fetch = new UUIDSet();
 
         Bukkit.getScheduler().runTaskAsynchronously(getPlugin(), () -> {
             // Build the expression
             StringBuilder expression = new StringBuilder(2 * queued.size() - 1);
-            for (int i = 0; i < expression.length() / 2; i++)
+            for (int i = 1; i < queued.size(); i++)
                 expression.append("?").append(",");
             expression.append("?");
 
@@ -292,7 +352,7 @@ public class DatabaseStorage extends DataStorage {
                 // Execute
                 ResultSet resultSet = statement.executeQuery();
                 // Fetched
-                List<PlayerInfo> fetched = new LinkedList<>();
+                List<PlayerInfo> rows = new ArrayList<>();
 
                 // While has next
                 while (resultSet.next()) {
@@ -300,8 +360,10 @@ public class DatabaseStorage extends DataStorage {
                     UUID uuid = UUID.fromString(resultSet.getString(1));
                     queued.remove(uuid);
                     // Construct
-                    fetched.add(PlayerInfo.from(uuid, resultSet.getInt(2), resultSet.getLong(3)));
+                    rows.add(PlayerInfo.from(uuid, resultSet.getInt(2), resultSet.getLong(3), getPlugin().getClock().nanoTime()));
                 }
+                // Channels
+                List<PlayerInfo> fetched = channels && !rows.isEmpty() ? withChannels(connection, rows) : rows;
 
                 // Refresh sync
                 Bukkit.getScheduler().runTask(getPlugin(), () -> fetched.forEach(this::refresh));
@@ -310,7 +372,7 @@ public class DatabaseStorage extends DataStorage {
             }
 
             // Refresh the remaining
-            Bukkit.getScheduler().runTask(getPlugin(), () -> queued.forEach(uuid -> refresh(PlayerInfo.empty(uuid))));
+            Bukkit.getScheduler().runTask(getPlugin(), () -> queued.forEach(uuid -> refresh(PlayerInfo.empty(uuid, getPlugin().getClock().nanoTime()))));
         });
     }
 
@@ -337,7 +399,7 @@ public class DatabaseStorage extends DataStorage {
                 // While there's anything available
                 while (resultSet.next()) {
                     // Info
-                    PlayerInfo info = PlayerInfo.from(UUID.fromString(resultSet.getString(1)), resultSet.getInt(2), resultSet.getLong(3));
+                    PlayerInfo info = PlayerInfo.from(UUID.fromString(resultSet.getString(1)), resultSet.getInt(2), resultSet.getLong(3), getPlugin().getClock().nanoTime());
                     // Refresh
                     fetched.add(info);
                     leaderboard.add(info);
@@ -357,6 +419,7 @@ public class DatabaseStorage extends DataStorage {
 
     @Override
     public void close() {
+        super.close();
         if (dataSource != null)
             dataSource.close();
     }
@@ -366,6 +429,90 @@ public class DatabaseStorage extends DataStorage {
         return false;
     }
 
+    /**
+     * Syncs per-channel records of the given queued info. Info without per-channel records is skipped.
+     *
+     * @param connection the connection to use
+     * @param queued     the queued info to sync
+     * @throws SQLException if the statement failed
+     */
+    private void syncChannels(@NotNull Connection connection, @NotNull Collection<PlayerInfo> queued) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(String.format(SQL_SYNC_CHANNEL, table))) {
+            // For each
+            for (PlayerInfo info : queued) {
+                // No channels
+                if (!info.hasChannels())
+                    continue;
+
+                for (ClickChannel channel : ClickChannel.VALUES) {
+                    // Set
+                    statement.setString(1, info.getUniqueId().toString());
+                    statement.setInt(2, channel.ordinal());
+                    statement.setInt(3, info.getCPS(channel));
+                    statement.setLong(4, info.getTime(channel));
+                    // Add
+                    statement.addBatch();
+                }
+            }
+            // Execute all
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Fetches per-channel records of the given info and returns the info with the records included (in the same
+     * order). Channels without a stored record are empty.
+     *
+     * @param connection the connection to use
+     * @param infos      the info to fetch for, must not be empty
+     * @return the info including per-channel records
+     * @throws SQLException if the statement failed
+     */
+    @NotNull
+    private List<PlayerInfo> withChannels(@NotNull Connection connection, @NotNull List<PlayerInfo> infos) throws SQLException {
+        // Build the expression
+        StringBuilder expression = new StringBuilder(2 * infos.size() - 1);
+        for (int i = 1; i < infos.size(); i++)
+            expression.append("?").append(",");
+        expression.append("?");
+
+        // Records
+        UUIDMap<int[]> channelCPS = new UUIDMap<>();
+        UUIDMap<long[]> channelTimes = new UUIDMap<>();
+        for (PlayerInfo info : infos) {
+            channelCPS.put(info.getUniqueId(), new int[ClickChannel.VALUES.length]);
+            channelTimes.put(info.getUniqueId(), new long[ClickChannel.VALUES.length]);
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(String.format(SQL_FETCH_CHANNELS, table, expression))) {
+            // Build the statement
+            int i = 1;
+            for (PlayerInfo info : infos)
+                statement.setString(i++, info.getUniqueId().toString());
+
+            // Execute
+            ResultSet resultSet = statement.executeQuery();
+            // While has next
+            while (resultSet.next()) {
+                // UUID and channel
+                UUID uuid = UUID.fromString(resultSet.getString(1));
+                int channel = resultSet.getInt(2);
+                // Unknown
+                if (!channelCPS.containsKey(uuid) || channel < 0 || channel >= ClickChannel.VALUES.length)
+                    continue;
+                // Set
+                channelCPS.get(uuid)[channel] = resultSet.getInt(3);
+                channelTimes.get(uuid)[channel] = resultSet.getLong(4);
+            }
+        }
+
+        // Include
+        List<PlayerInfo> included = new ArrayList<>(infos.size());
+        for (PlayerInfo info : infos)
+            included.add(PlayerInfo.from(info.getUniqueId(), info.getCPS(), info.getTime(), info.getFetchTime(), channelCPS.get(info.getUniqueId()), channelTimes.get(info.getUniqueId())));
+        return included;
+    }
+
     /**
      * Refreshes the given info by caching it and {@link #passToSampler(PlayerInfo) passing to the sampler}.
      *
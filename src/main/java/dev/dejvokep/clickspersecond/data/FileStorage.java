@@ -23,23 +23,65 @@ import dev.dejvokep.boostedyaml.settings.general.GeneralSettings;
 import dev.dejvokep.boostedyaml.settings.loader.LoaderSettings;
 import dev.dejvokep.boostedyaml.settings.updater.UpdaterSettings;
 import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
 import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of {@link DataStorage} for files.
+ * <p>
+ * The document is owned by the persistence thread - all mutations (syncs and deletions) are applied, and the document
+ * is saved, on that thread only. Reads are served from a concurrent view of the records, which is updated along with
+ * the document, so the main thread never touches the document nor waits for disk I/O.
+ * <p>
+ * Saves are copy-on-write: the document is dumped to an immutable snapshot, which is written to a temporary file that
+ * atomically replaces the data file, so a crash while saving never leaves a partially written file behind. Deletions
+ * are queued and applied by the next save, so any amount of deletions (and a sync) issued meanwhile collapse into a
+ * single write.
  */
 public class FileStorage extends DataStorage {
 
-    // File
+    /**
+     * Name of the data file.
+     */
+    static final String FILE = "player-data.yml";
+
+    /**
+     * Suffix of the temporary file the snapshots are written to.
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // File (persistence thread)
     private YamlDocument file;
+    // If there are unsaved changes (persistence thread)
+    private boolean dirty = false;
+    // Records
+    private final ConcurrentHashMap<UUID, PlayerInfo> records = new ConcurrentHashMap<>();
+    // Leaderboard index
+    private final LeaderboardIndex index = new LeaderboardIndex();
+    // Pending deletions
+    private final ConcurrentLinkedQueue<Deletion> deletions = new ConcurrentLinkedQueue<>();
+    // If a save is scheduled
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
 
     /**
      * Initializes the data storage.
@@ -52,7 +94,13 @@ public class FileStorage extends DataStorage {
 
         try {
             // Load
-            file = YamlDocument.create(new File(plugin.getDataFolder(), "player-data.yml"), GeneralSettings.builder().setDefaultMap(HashMap::new).setUseDefaults(false).build(), LoaderSettings.DEFAULT, DumperSettings.DEFAULT, UpdaterSettings.DEFAULT);
+            file = load(plugin);
+            // Index
+            file.getStoredValue().values().forEach(block -> {
+                PlayerInfo info = (PlayerInfo) block.getStoredValue();
+                records.put(info.getUniqueId(), info);
+                index.update(info);
+            });
             // Ready
             ready();
         } catch (IOException ex) {
@@ -61,21 +109,138 @@ public class FileStorage extends DataStorage {
     }
 
     @Override
-    public void sync(@NotNull Set<PlayerInfo> queued) {
+    public boolean sync(@NotNull Collection<PlayerInfo> queued) {
+        // Apply pending deletions first, so they never delete newer records
+        List<Deletion> applied = applyDeletions();
         // For each (no need to worry about delayed sync as fetching is immediate)
-        queued.forEach(info -> file.set(info.getUniqueId().toString(), info));
+        queued.forEach(info -> {
+            // Deleted after drained
+            if (isDiscarded(info.getUniqueId()))
+                return;
+
+            file.set(info.getUniqueId().toString(), info);
+            records.put(info.getUniqueId(), info);
+            index.update(info);
+        });
 
         // Save
+        dirty = true;
+        return save(applied);
+    }
+
+    /**
+     * Applies all pending deletions and saves the document, if there are unsaved changes. Completes results of the
+     * applied deletions. Must only be called on the persistence thread.
+     *
+     * @return if the save was successful (or there was nothing to save)
+     */
+    private boolean save() {
+        return save(applyDeletions());
+    }
+
+    /**
+     * Applies all pending deletions. Must only be called on the persistence thread.
+     *
+     * @return the applied deletions
+     */
+    @NotNull
+    private List<Deletion> applyDeletions() {
+        List<Deletion> applied = new ArrayList<>();
+        Deletion deletion;
+        while ((deletion = deletions.poll()) != null) {
+            // All
+            if (deletion.uuid == null) {
+                file.clear();
+                records.clear();
+                index.clear();
+            } else {
+                file.remove(deletion.uuid.toString());
+                records.remove(deletion.uuid);
+                index.remove(deletion.uuid);
+            }
+            applied.add(deletion);
+            dirty = true;
+        }
+        return applied;
+    }
+
+    /**
+     * Saves the document, if there are unsaved changes. Completes results of the given applied deletions. Must only be
+     * called on the persistence thread.
+     *
+     * @param applied the applied deletions
+     * @return if the save was successful (or there was nothing to save)
+     */
+    private boolean save(@NotNull List<Deletion> applied) {
+        // Nothing to save
+        boolean saved = true;
+        if (dirty) {
+            try {
+                write(file.dump());
+                dirty = false;
+            } catch (IOException ex) {
+                getPlugin().getLogger().log(Level.SEVERE, "Failed to save player information!", ex);
+                saved = false;
+            }
+        }
+
+        // Complete
+        for (Deletion completed : applied)
+            completed.result.complete(saved);
+        return saved;
+    }
+
+    /**
+     * Writes the given snapshot to the temporary file, forces it to the disk and atomically moves it over the data
+     * file. Must only be called on the persistence thread.
+     *
+     * @param snapshot the snapshot of the document
+     * @throws IOException if failed to write or move the file
+     */
+    private void write(@NotNull String snapshot) throws IOException {
+        // Files
+        Path target = file.getFile().toPath(), temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+
+        // Write
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(snapshot.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(true);
+        }
+
+        // Replace
         try {
-            file.save();
-        } catch (IOException ex) {
-            getPlugin().getLogger().log(Level.SEVERE, "Failed to save player information!", ex);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Queues the given deletion and schedules a save, unless one is already scheduled.
+     *
+     * @param deletion the deletion to queue
+     * @return the result of the deletion
+     */
+    @NotNull
+    private CompletableFuture<Boolean> queue(@NotNull Deletion deletion) {
+        // Queue
+        deletions.add(deletion);
+        // Schedule
+        if (saveScheduled.compareAndSet(false, true)) {
+            submit(() -> {
+                saveScheduled.set(false);
+                return save();
+            });
         }
+
+        return deletion.result;
     }
 
     @Override
     public void queueFetch(@NotNull UUID uuid) {
-        passToSampler(file.getAsOptional(uuid.toString(), PlayerInfo.class).orElseGet(() -> PlayerInfo.empty(uuid)));
+        passToSampler(fetch(uuid));
     }
 
     @Override
@@ -86,54 +251,46 @@ public class FileStorage extends DataStorage {
     @Override
     @NotNull
     public CompletableFuture<PlayerInfo> fetchSingle(@NotNull UUID uuid, boolean skipCache) {
-        return CompletableFuture.completedFuture(file.getAs(uuid.toString(), PlayerInfo.class, PlayerInfo.empty(uuid)));
+        return CompletableFuture.completedFuture(fetch(uuid));
+    }
+
+    /**
+     * Returns the stored info of the given player, or empty info if there is none.
+     *
+     * @param uuid the ID of the player
+     * @return the stored info
+     */
+    @NotNull
+    private PlayerInfo fetch(@NotNull UUID uuid) {
+        PlayerInfo info = records.get(uuid);
+        return info == null ? PlayerInfo.empty(uuid, getPlugin().getClock().nanoTime()) : info;
     }
 
     @Override
     @NotNull
     public CompletableFuture<Boolean> delete(@NotNull UUID uuid) {
         // Delete
-        file.remove(uuid.toString());
-
-        // Save
-        try {
-            file.save();
-        } catch (IOException ex) {
-            getPlugin().getLogger().log(Level.SEVERE, "Failed to save player information!", ex);
-            return CompletableFuture.completedFuture(false);
-        }
-
-        // Success
-        return CompletableFuture.completedFuture(true);
+        discard(uuid);
+        return queue(new Deletion(uuid));
     }
 
     @Override
     @NotNull
     public CompletableFuture<Boolean> deleteAll() {
         // Clear
-        file.clear();
-
-        // Save
-        try {
-            file.save();
-        } catch (IOException ex) {
-            getPlugin().getLogger().log(Level.SEVERE, "Failed to save player information!", ex);
-            return CompletableFuture.completedFuture(false);
-        }
-
-        // Success
-        return CompletableFuture.completedFuture(true);
+        discardAll();
+        return queue(new Deletion(null));
     }
 
     @Override
     @NotNull
     public CompletableFuture<List<PlayerInfo>> fetchLeaderboard(int limit) {
-        return CompletableFuture.completedFuture(file.getStoredValue().values().stream().map(block -> (PlayerInfo) block.getStoredValue()).sorted(Comparator.comparingInt(PlayerInfo::getCPS).reversed()).collect(Collectors.toList()));
+        return CompletableFuture.completedFuture(index.top(limit));
     }
 
     @Override
-    public void close() {
-        // Unused
+    public long getRank(@NotNull UUID uuid) {
+        return index.rank(uuid);
     }
 
     @Override
@@ -141,8 +298,29 @@ public class FileStorage extends DataStorage {
         return true;
     }
 
-    static {
+    /**
+     * Loads (or creates) the player-data.yml file of the given plugin, registering the serialization adapters
+     * beforehand.
+     *
+     * @param plugin the plugin
+     * @return the loaded file
+     * @throws IOException if failed to load the file
+     */
+    @NotNull
+    static YamlDocument load(@NotNull ClicksPerSecond plugin) throws IOException {
         // Register adapters
+        registerAdapters(plugin.getClock());
+        // Load
+        return YamlDocument.create(new File(plugin.getDataFolder(), FILE), GeneralSettings.builder().setDefaultMap(HashMap::new).setUseDefaults(false).build(), LoaderSettings.DEFAULT, DumperSettings.DEFAULT, UpdaterSettings.DEFAULT);
+    }
+
+    /**
+     * Registers the {@link PlayerInfo} serialization adapters. Deserialized information will have their fetch time
+     * obtained from the given clock.
+     *
+     * @param clock the clock to use
+     */
+    private static void registerAdapters(@NotNull Clock clock) {
         StandardSerializer.getDefault().register(PlayerInfo.class, new TypeAdapter<PlayerInfo>() {
             @NotNull
             @Override
@@ -152,15 +330,64 @@ public class FileStorage extends DataStorage {
                 map.put("cps", info.getCPS());
                 map.put("time", info.getTime());
                 map.put("toggle", info.getToggle());
+                // Channels
+                if (info.hasChannels()) {
+                    Map<Object, Object> channels = new HashMap<>();
+                    for (ClickChannel channel : ClickChannel.VALUES) {
+                        Map<Object, Object> record = new HashMap<>();
+                        record.put("cps", info.getCPS(channel));
+                        record.put("time", info.getTime(channel));
+                        channels.put(channel.getKey(), record);
+                    }
+                    map.put("channels", channels);
+                }
                 return map;
             }
 
             @NotNull
             @Override
+            @SuppressWarnings("unchecked")
             public PlayerInfo deserialize(@NotNull Map<Object, Object> map) {
-                return PlayerInfo.from((UUID) map.get("uuid"), (int) map.get("cps"), (long) map.get("time"));
+                // Without channels
+                if (!(map.get("channels") instanceof Map))
+                    return PlayerInfo.from((UUID) map.get("uuid"), (int) map.get("cps"), (long) map.get("time"), clock.nanoTime());
+
+                // Channels
+                Map<Object, Object> channels = (Map<Object, Object>) map.get("channels");
+                int[] channelCPS = new int[ClickChannel.VALUES.length];
+                long[] channelTimes = new long[ClickChannel.VALUES.length];
+                for (ClickChannel channel : ClickChannel.VALUES) {
+                    Object record = channels.get(channel.getKey());
+                    if (!(record instanceof Map))
+                        continue;
+                    channelCPS[channel.ordinal()] = ((Number) ((Map<Object, Object>) record).get("cps")).intValue();
+                    channelTimes[channel.ordinal()] = ((Number) ((Map<Object, Object>) record).get("time")).longValue();
+                }
+                return PlayerInfo.from((UUID) map.get("uuid"), (int) map.get("cps"), (long) map.get("time"), clock.nanoTime(), channelCPS, channelTimes);
             }
         });
         StandardSerializer.getDefault().register("cps:player-info", PlayerInfo.class);
     }
-}
+
+    /**
+     * A pending deletion.
+     */
+    private static class Deletion {
+
+        // ID of the player, null if all
+        @Nullable
+        private final UUID uuid;
+        // Result
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        /**
+         * Initializes the deletion.
+         *
+         * @param uuid the ID of the player to delete, or <code>null</code> to delete all
+         */
+        private Deletion(@Nullable UUID uuid) {
+            this.uuid = uuid;
+        }
+
+    }
+}
\ No newline at end of file
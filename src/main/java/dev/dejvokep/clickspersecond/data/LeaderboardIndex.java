@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.data;
+
+import dev.dejvokep.clickspersecond.utils.container.FenwickTree;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Order-statistic index of records, maintained incrementally as records change. Players are grouped into buckets by
+ * their CPS, and a {@link FenwickTree} over the bucket sizes finds non-empty buckets and ranks in
+ * <code>O(log m)</code>, where <code>m</code> is the highest CPS. Reading the top <code>n</code> places, therefore,
+ * costs <code>O(n)</code> bucket reads, without ever sorting the data.
+ * <p>
+ * Players in the same bucket are ordered by insertion. All methods are synchronized.
+ */
+public class LeaderboardIndex {
+
+    /**
+     * Initial capacity of the buckets (highest CPS plus one).
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Highest bucket; higher records (which are not realistic) share it.
+     */
+    private static final int MAX_BUCKET = 65535;
+
+    // Bucket sizes
+    private final FenwickTree sizes = new FenwickTree(INITIAL_CAPACITY);
+    // Buckets by CPS
+    private final Map<Integer, LinkedHashMap<UUID, PlayerInfo>> buckets = new HashMap<>();
+    // Indexed records
+    private final Map<UUID, PlayerInfo> records = new HashMap<>();
+
+    /**
+     * Indexes the given info, replacing the previous record of the player, if any.
+     *
+     * @param info the info to index
+     */
+    public synchronized void update(@NotNull PlayerInfo info) {
+        // Remove previous
+        remove(info.getUniqueId());
+        // Empty
+        if (info.isEmpty())
+            return;
+
+        // Add
+        int cps = bucket(info);
+        records.put(info.getUniqueId(), info);
+        buckets.computeIfAbsent(cps, key -> new LinkedHashMap<>()).put(info.getUniqueId(), info);
+        sizes.add(cps, 1);
+    }
+
+    /**
+     * Removes the record of the given player from the index, if any.
+     *
+     * @param uuid the ID of the player
+     */
+    public synchronized void remove(@NotNull UUID uuid) {
+        // Previous
+        PlayerInfo previous = records.remove(uuid);
+        if (previous == null)
+            return;
+
+        // Remove
+        int cps = bucket(previous);
+        LinkedHashMap<UUID, PlayerInfo> bucket = buckets.get(cps);
+        bucket.remove(uuid);
+        if (bucket.isEmpty())
+            buckets.remove(cps);
+        sizes.add(cps, -1);
+    }
+
+    /**
+     * Removes all records from the index.
+     */
+    public synchronized void clear() {
+        records.clear();
+        buckets.clear();
+        sizes.clear();
+    }
+
+    /**
+     * Returns the top places (highest records first), at most the given amount.
+     *
+     * @param limit max places to return
+     * @return the top places
+     */
+    @NotNull
+    public synchronized List<PlayerInfo> top(int limit) {
+        List<PlayerInfo> top = new ArrayList<>((int) Math.min(limit, sizes.total()));
+        // Highest non-empty bucket
+        long below = sizes.total();
+        while (top.size() < limit && below > 0) {
+            int cps = sizes.search(below);
+            for (PlayerInfo info : buckets.get(cps).values()) {
+                if (top.size() >= limit)
+                    break;
+                top.add(info);
+            }
+            // Next lower bucket
+            below = cps == 0 ? 0 : sizes.prefix(cps - 1);
+        }
+        return top;
+    }
+
+    /**
+     * Returns the rank (place in the leaderboard) of the given player, or <code>-1</code> if the player has no record.
+     * Players with equal records share the rank.
+     *
+     * @param uuid the ID of the player
+     * @return the rank of the player, starting from <code>1</code>
+     */
+    public synchronized long rank(@NotNull UUID uuid) {
+        PlayerInfo info = records.get(uuid);
+        return info == null ? -1 : sizes.total() - sizes.prefix(bucket(info)) + 1;
+    }
+
+    /**
+     * Returns the bucket of the given info.
+     *
+     * @param info the info
+     * @return the bucket
+     */
+    private static int bucket(@NotNull PlayerInfo info) {
+        return Math.min(Math.max(info.getCPS(), 0), MAX_BUCKET);
+    }
+
+    /**
+     * Returns the amount of indexed records.
+     *
+     * @return the amount of records
+     */
+    public synchronized int size() {
+        return records.size();
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,608 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.data;
+
+import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Implementation of {@link DataStorage} for log-structured binary files.
+ * <p>
+ * Changed records are only appended (encoded by {@link RecordCodec}) to the active segment file, so each sync costs
+ * one small write regardless of the amount of stored players. Location of the latest entry of each player is kept in
+ * an in-memory index, which is rebuilt by scanning all segments on startup. Once the active segment is full, it is
+ * sealed and a new one is started.
+ * <p>
+ * Superseded entries and tombstones are garbage. Once there is too much of it in the sealed segments, the oldest
+ * segment is compacted (its live entries are copied to the active segment and the segment is deleted) on the
+ * persistence thread. Compacting strictly from the oldest segment guarantees that no tombstone is dropped while an
+ * older entry it deletes still exists. As the oldest segment might hold much less garbage than the others, it is
+ * compacted incrementally, at most {@value #COMPACTION_STEP} entries per sync, so a single sync never copies a whole
+ * segment.
+ */
+public class LogStorage extends DataStorage {
+
+    /**
+     * Name of the segment directory.
+     */
+    private static final String DIRECTORY = "player-data";
+
+    /**
+     * Extension of segment files.
+     */
+    private static final String EXTENSION = ".log";
+
+    /**
+     * Size of a segment in bytes after which it is sealed.
+     */
+    private static final long SEGMENT_SIZE = 4L * 1024 * 1024;
+
+    /**
+     * Min ratio of garbage entries in sealed segments to compact.
+     */
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+    /**
+     * Max amount of entries of the oldest segment scanned (and possibly copied) by one compaction step.
+     */
+    private static final int COMPACTION_STEP = 1024;
+
+    /**
+     * Max attempts to read an entry which is being moved by compaction.
+     */
+    private static final int READ_ATTEMPTS = 3;
+
+    // Directory
+    private final File directory;
+    // Index
+    private final ConcurrentHashMap<UUID, Location> index = new ConcurrentHashMap<>();
+    // Segments by ID (persistence thread)
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    // Active segment (persistence thread)
+    private Segment active;
+    // Segment being compacted and offset of its first entry not yet scanned (persistence thread)
+    private Segment compacting;
+    private int compacted;
+
+    // Codec
+    private final RecordCodec codec = new RecordCodec();
+    // Encoded entry
+    private final byte[] entry = new byte[RecordCodec.ENTRY_SIZE];
+    // Write buffer
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(RecordCodec.ENTRY_SIZE * 64);
+
+    /**
+     * Initializes the data storage.
+     *
+     * @param plugin the plugin
+     */
+    public LogStorage(@NotNull ClicksPerSecond plugin) {
+        // Call
+        super(plugin, "log-structured player-data files");
+        this.directory = new File(plugin.getDataFolder(), DIRECTORY);
+
+        try {
+            // Load
+            load();
+            // Ready
+            ready();
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to load player-data segments!", ex);
+        }
+    }
+
+    /**
+     * Opens all segments and rebuilds the index from them.
+     *
+     * @throws IOException if failed to read any segment
+     */
+    private void load() throws IOException {
+        // Create
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Failed to create directory " + directory + "!");
+
+        // Open all
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    int id = Integer.parseInt(file.getName().substring(0, file.getName().length() - EXTENSION.length()));
+                    segments.put(id, new Segment(id, file));
+                } catch (NumberFormatException ignored) {
+                    getPlugin().getLogger().warning("Skipping unknown file in the player-data folder: " + file.getName());
+                }
+            }
+        }
+
+        // Scan in order of writing
+        for (Segment segment : segments.values())
+            scan(segment);
+
+        // Active
+        active = segments.isEmpty() ? createSegment(0) : segments.lastEntry().getValue();
+        if (active.size >= SEGMENT_SIZE)
+            active = createSegment(active.id + 1);
+    }
+
+    /**
+     * Scans the given segment and applies its entries to the index. Reading stops at the first incomplete or
+     * corrupted entry, which (and everything after it) is discarded.
+     *
+     * @param segment the segment to scan
+     * @throws IOException if failed to read the segment
+     */
+    private void scan(@NotNull Segment segment) throws IOException {
+        // Read
+        ByteBuffer data = segment.readAll();
+        while (data.remaining() >= RecordCodec.ENTRY_SIZE) {
+            int offset = data.position();
+            data.get(entry);
+            // Verify
+            if (!codec.verify(entry))
+                break;
+
+            // Apply
+            segment.entries++;
+            PlayerInfo info = RecordCodec.decode(entry, 0L);
+            if (RecordCodec.isDeletion(entry))
+                unindex(info.getUniqueId());
+            else
+                index(info.getUniqueId(), new Location(segment, offset, info.getCPS()));
+        }
+
+        // Discard the invalid tail
+        segment.size = (long) segment.entries * RecordCodec.ENTRY_SIZE;
+        segment.channel.truncate(segment.size);
+    }
+
+    @Override
+    public boolean sync(@NotNull Collection<PlayerInfo> queued) {
+        try {
+            // Encode
+            prepare(queued.size());
+            for (PlayerInfo info : queued) {
+                codec.encode(info, entry);
+                buffer.put(entry);
+            }
+
+            // Write
+            int offset = append();
+            // Index
+            for (PlayerInfo info : queued) {
+                index(info.getUniqueId(), new Location(active, offset, info.getCPS()));
+                offset += RecordCodec.ENTRY_SIZE;
+            }
+
+            // Seal
+            if (active.size >= SEGMENT_SIZE)
+                active = createSegment(active.id + 1);
+            // Compact
+            compact();
+            return true;
+        } catch (IOException ex) {
+            getPlugin().getLogger().log(Level.SEVERE, "Failed to save player information!", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Runs a compaction step of the oldest sealed segment, if there is enough garbage in the sealed segments. Once all
+     * entries of the segment have been scanned (or none of them is live anymore), the segment is deleted.
+     *
+     * @throws IOException if failed to compact
+     */
+    private void compact() throws IOException {
+        // No sealed segments
+        if (segments.size() < 2)
+            return;
+
+        // Garbage
+        long entries = 0, live = 0;
+        for (Segment segment : segments.values()) {
+            if (segment == active)
+                continue;
+            entries += segment.entries;
+            live += segment.live;
+        }
+        // Not enough
+        if (entries - live < entries * COMPACTION_THRESHOLD)
+            return;
+
+        // Oldest
+        Segment oldest = segments.firstEntry().getValue();
+        if (compacting != oldest) {
+            compacting = oldest;
+            compacted = 0;
+        }
+
+        // Step
+        ByteBuffer data = oldest.read(compacted, COMPACTION_STEP * RecordCodec.ENTRY_SIZE);
+        int count = Math.min(data.remaining() / RecordCodec.ENTRY_SIZE, oldest.live);
+        List<UUID> moved = new ArrayList<>(count);
+        List<Integer> cps = new ArrayList<>(count);
+        prepare(count);
+        while (data.remaining() >= RecordCodec.ENTRY_SIZE && moved.size() < oldest.live) {
+            int offset = compacted + data.position();
+            data.get(entry);
+            // If the latest entry of the player
+            UUID uuid = new UUID(ByteBuffer.wrap(entry).getLong(0), ByteBuffer.wrap(entry).getLong(8));
+            Location location = index.get(uuid);
+            if (location == null || location.segment != oldest || location.offset != offset)
+                continue;
+
+            // Copy
+            buffer.put(entry);
+            moved.add(uuid);
+            cps.add(location.cps);
+        }
+
+        // Write
+        int offset = append();
+        // Index
+        for (int i = 0; i < moved.size(); i++) {
+            index(moved.get(i), new Location(active, offset, cps.get(i)));
+            offset += RecordCodec.ENTRY_SIZE;
+        }
+        // Seal
+        if (active.size >= SEGMENT_SIZE)
+            active = createSegment(active.id + 1);
+
+        // Not done yet
+        compacted += data.position();
+        if (oldest.live > 0 && compacted + RecordCodec.ENTRY_SIZE <= oldest.size)
+            return;
+
+        // Delete
+        compacting = null;
+        segments.remove(oldest.id);
+        oldest.channel.close();
+        Files.delete(oldest.file.toPath());
+    }
+
+    /**
+     * Clears the write buffer, ensuring it can hold the given amount of entries.
+     *
+     * @param entries the amount of entries to hold
+     */
+    private void prepare(int entries) {
+        if (buffer.capacity() < entries * RecordCodec.ENTRY_SIZE)
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(entries * RecordCodec.ENTRY_SIZE) << 1);
+        buffer.clear();
+    }
+
+    /**
+     * Appends the content of the write buffer to the active segment and forces it to the disk.
+     *
+     * @return offset of the first written entry
+     * @throws IOException if failed to write
+     */
+    private int append() throws IOException {
+        // Write (positional, so a failed write is overwritten by the next one)
+        buffer.flip();
+        int offset = (int) active.size;
+        long position = offset;
+        while (buffer.hasRemaining())
+            position += active.channel.write(buffer, position);
+        active.channel.force(false);
+
+        // Written
+        active.size = position;
+        active.entries += (int) ((position - offset) / RecordCodec.ENTRY_SIZE);
+        return offset;
+    }
+
+    /**
+     * Points the index entry of the given player to the given location.
+     *
+     * @param uuid     the ID of the player
+     * @param location the location of the latest entry
+     */
+    private void index(@NotNull UUID uuid, @NotNull Location location) {
+        Location previous = index.put(uuid, location);
+        if (previous != null)
+            previous.segment.live--;
+        location.segment.live++;
+    }
+
+    /**
+     * Removes the index entry of the given player.
+     *
+     * @param uuid the ID of the player
+     */
+    private void unindex(@NotNull UUID uuid) {
+        Location previous = index.remove(uuid);
+        if (previous != null)
+            previous.segment.live--;
+    }
+
+    /**
+     * Creates a new empty segment with the given ID.
+     *
+     * @param id the ID of the segment
+     * @return the created segment
+     * @throws IOException if failed to create the segment
+     */
+    @NotNull
+    private Segment createSegment(int id) throws IOException {
+        Segment segment = new Segment(id, new File(directory, id + EXTENSION));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    /**
+     * Reads the latest entry of the given player. Can be called from any thread.
+     *
+     * @param uuid the ID of the player
+     * @return the read info, or empty if there is none
+     */
+    @NotNull
+    private PlayerInfo read(@NotNull UUID uuid) {
+        long fetchTime = getPlugin().getClock().nanoTime();
+        for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+            // Location
+            Location location = index.get(uuid);
+            if (location == null)
+                break;
+
+            try {
+                return location.segment.read(location.offset, fetchTime);
+            } catch (ClosedChannelException ignored) {
+                // Compacted meanwhile, look up again
+            } catch (IOException ex) {
+                getPlugin().getLogger().log(Level.SEVERE, "Failed to read player information!", ex);
+                break;
+            }
+        }
+
+        return PlayerInfo.empty(uuid, fetchTime);
+    }
+
+    @Override
+    public void queueFetch(@NotNull UUID uuid) {
+        passToSampler(read(uuid));
+    }
+
+    @Override
+    public void skipFetch(@NotNull UUID uuid) {
+        // Unused
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<PlayerInfo> fetchSingle(@NotNull UUID uuid, boolean skipCache) {
+        return CompletableFuture.completedFuture(read(uuid));
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<Boolean> delete(@NotNull UUID uuid) {
+        // Delete
+        discard(uuid);
+
+        return submit(() -> {
+            // Not stored
+            if (!index.containsKey(uuid))
+                return true;
+
+            try {
+                // Tombstone
+                prepare(1);
+                codec.encodeDeletion(uuid, entry);
+                buffer.put(entry);
+                append();
+                unindex(uuid);
+                return true;
+            } catch (IOException ex) {
+                getPlugin().getLogger().log(Level.SEVERE, "Failed to save player information!", ex);
+                return false;
+            }
+        });
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<Boolean> deleteAll() {
+        // Clear
+        discardAll();
+
+        return submit(() -> {
+            try {
+                // Delete all segments
+                int next = active.id + 1;
+                index.clear();
+                for (Segment segment : segments.values()) {
+                    segment.channel.close();
+                    Files.delete(segment.file.toPath());
+                }
+                segments.clear();
+                // Start over
+                active = createSegment(next);
+                return true;
+            } catch (IOException ex) {
+                getPlugin().getLogger().log(Level.SEVERE, "Failed to delete player information!", ex);
+                return false;
+            }
+        });
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<List<PlayerInfo>> fetchLeaderboard(int limit) {
+        // Nothing to fetch
+        if (limit <= 0)
+            return CompletableFuture.completedFuture(Collections.emptyList());
+
+        return CompletableFuture.supplyAsync(() -> {
+            // Top players (min-heap by CPS)
+            PriorityQueue<Map.Entry<UUID, Location>> top = new PriorityQueue<>(Comparator.comparingInt(entry -> entry.getValue().cps));
+            for (Map.Entry<UUID, Location> entry : index.entrySet()) {
+                if (top.size() < limit) {
+                    top.add(entry);
+                } else if (entry.getValue().cps > top.peek().getValue().cps) {
+                    top.poll();
+                    top.add(entry);
+                }
+            }
+
+            // Read
+            List<PlayerInfo> leaderboard = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                PlayerInfo info = read(top.poll().getKey());
+                if (!info.isEmpty())
+                    leaderboard.add(info);
+            }
+            Collections.reverse(leaderboard);
+            return leaderboard;
+        });
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        // Close all segments
+        for (Segment segment : segments.values()) {
+            try {
+                segment.channel.close();
+            } catch (IOException ex) {
+                getPlugin().getLogger().log(Level.SEVERE, "Failed to close a player-data segment!", ex);
+            }
+        }
+    }
+
+    @Override
+    public boolean isInstantFetch() {
+        return true;
+    }
+
+    /**
+     * Location of the latest entry of a player.
+     */
+    private static class Location {
+
+        // Segment
+        private final Segment segment;
+        // Offset in the segment
+        private final int offset;
+        // CPS (to sort the leaderboard without reading)
+        private final int cps;
+
+        /**
+         * Initializes the location.
+         *
+         * @param segment the segment
+         * @param offset  the offset in the segment
+         * @param cps     the CPS of the entry
+         */
+        private Location(@NotNull Segment segment, int offset, int cps) {
+            this.segment = segment;
+            this.offset = offset;
+            this.cps = cps;
+        }
+
+    }
+
+    /**
+     * A segment file. Its counters are only accessed on the persistence thread, but entries can be read from any
+     * thread.
+     */
+    private static class Segment {
+
+        // ID
+        private final int id;
+        // File
+        private final File file;
+        // Channel
+        private final FileChannel channel;
+        // Size in bytes, amount of all and live entries
+        private long size;
+        private int entries = 0, live = 0;
+
+        /**
+         * Opens (or creates) the segment.
+         *
+         * @param id   the ID of the segment
+         * @param file the segment file
+         * @throws IOException if failed to open the file
+         */
+        private Segment(int id, @NotNull File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+
+        /**
+         * Reads the entry at the given offset.
+         *
+         * @param offset    the offset of the entry
+         * @param fetchTime fetch time of the info
+         * @return the read info
+         * @throws IOException if failed to read (closed channel if the segment has been compacted)
+         */
+        @NotNull
+        private PlayerInfo read(int offset, long fetchTime) throws IOException {
+            ByteBuffer entry = ByteBuffer.allocate(RecordCodec.ENTRY_SIZE);
+            while (entry.hasRemaining())
+                if (channel.read(entry, offset + entry.position()) < 0)
+                    throw new IOException("Unexpected end of segment " + file.getName() + "!");
+            return RecordCodec.decode(entry.array(), fetchTime);
+        }
+
+        /**
+         * Reads the whole segment.
+         *
+         * @return the content of the segment
+         * @throws IOException if failed to read
+         */
+        @NotNull
+        private ByteBuffer readAll() throws IOException {
+            return read(0, (int) channel.size());
+        }
+
+        /**
+         * Reads up to the given amount of bytes, starting at the given offset.
+         *
+         * @param offset the offset
+         * @param length the max amount of bytes to read
+         * @return the read content
+         * @throws IOException if failed to read
+         */
+        @NotNull
+        private ByteBuffer read(int offset, int length) throws IOException {
+            ByteBuffer data = ByteBuffer.allocate((int) Math.max(Math.min(length, channel.size() - offset), 0));
+            while (data.hasRemaining())
+                if (channel.read(data, offset + data.position()) < 0)
+                    break;
+            data.flip();
+            return data;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,689 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.data;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.StampedLock;
+import java.util.logging.Level;
+
+/**
+ * Implementation of {@link DataStorage} for a memory-mapped file of fixed-width records.
+ * <p>
+ * The file is an open-addressing hash table (with linear probing) of {@value #SLOT_SIZE}-byte slots, each holding
+ * UUID most and least significant bits, CPS, flags and time of a record. Lookups, updates and leaderboard scans only
+ * touch the mapped pages, so the heap usage does not grow with the amount of stored players, and startup only maps
+ * the file. Per-channel records are not stored.
+ * <p>
+ * The table is written on the persistence thread only. Reads can come from any thread; they are validated against
+ * concurrent writes by a {@link StampedLock}, which is only held for in-place slot writes and table swaps (flushing to
+ * disk happens after it is released). Once the table is too full, it is rehashed into a new generation file (of
+ * larger capacity, if needed) without the lock, which only replaces the previous one once it is complete, so a crash
+ * while rehashing loses nothing.
+ * <p>
+ * If there is no table yet, records are imported from the player-data.yml file (if any), which is then renamed, so
+ * the import only runs once.
+ */
+public class MappedStorage extends DataStorage {
+
+    /**
+     * Prefix of table file names, which are suffixed by the generation.
+     */
+    private static final String PREFIX = "player-data-";
+
+    /**
+     * Extension of table files.
+     */
+    private static final String EXTENSION = ".dat";
+
+    /**
+     * Suffix appended to the name of the imported player-data.yml file.
+     */
+    private static final String IMPORTED_SUFFIX = ".imported";
+
+    /**
+     * Size of a slot (and the header) in bytes.
+     */
+    private static final int SLOT_SIZE = 32;
+
+    /**
+     * Magic number of complete tables ("CPS1").
+     */
+    private static final int MAGIC = 0x43505331;
+
+    /**
+     * Initial capacity of the table (must be a power of 2).
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Max capacity of the table (the file must be mappable as a whole).
+     */
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    /**
+     * Max ratio of used (occupied and deleted) slots, after which the table is rehashed.
+     */
+    private static final double MAX_LOAD = 0.7;
+
+    /**
+     * Amount of slots scanned at once by leaderboard fetches.
+     */
+    private static final int SCAN_CHUNK = 4096;
+
+    /**
+     * Header offsets.
+     */
+    private static final int HEADER_MAGIC = 0, HEADER_CAPACITY = 4, HEADER_SIZE = 8, HEADER_DELETED = 12;
+
+    /**
+     * Slot offsets.
+     */
+    private static final int SLOT_MSB = 0, SLOT_LSB = 8, SLOT_CPS = 16, SLOT_FLAGS = 20, SLOT_TIME = 24;
+
+    /**
+     * Slot flags.
+     */
+    private static final int FLAG_OCCUPIED = 1, FLAG_DELETED = 2;
+
+    // Directory
+    private final File directory;
+    // Lock
+    private final StampedLock lock = new StampedLock();
+    // Generation, file and mapped table
+    private int generation = -1;
+    private File file;
+    private volatile MappedByteBuffer table;
+
+    /**
+     * Initializes the data storage.
+     *
+     * @param plugin the plugin
+     */
+    public MappedStorage(@NotNull ClicksPerSecond plugin) {
+        // Call
+        super(plugin, "memory-mapped player-data file");
+        this.directory = plugin.getDataFolder();
+
+        try {
+            // Open
+            if (!open())
+                importYaml();
+            // Ready
+            ready();
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to open player-data table!", ex);
+        }
+    }
+
+    /**
+     * Maps the complete table of the latest generation, if any. All other table files (previous or incomplete tables)
+     * are deleted.
+     *
+     * @return if a table has been opened
+     * @throws IOException if failed to map the table
+     */
+    private boolean open() throws IOException {
+        // Tables by generation
+        TreeMap<Integer, File> tables = new TreeMap<>(Comparator.reverseOrder());
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(EXTENSION));
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    tables.put(Integer.parseInt(file.getName().substring(PREFIX.length(), file.getName().length() - EXTENSION.length())), file);
+                } catch (NumberFormatException ignored) {
+                    // Not a table
+                }
+            }
+        }
+
+        // Latest complete
+        for (Map.Entry<Integer, File> entry : tables.entrySet()) {
+            // Next generation must not overwrite any file
+            generation = Math.max(generation, entry.getKey());
+            // Already opened
+            if (table != null) {
+                delete(entry.getValue());
+                continue;
+            }
+
+            // Map
+            MappedByteBuffer table = map(entry.getValue());
+            if (table == null || table.getInt(HEADER_MAGIC) != MAGIC || Integer.bitCount(table.getInt(HEADER_CAPACITY)) != 1 || offset(table.getInt(HEADER_CAPACITY)) != table.capacity()) {
+                delete(entry.getValue());
+                continue;
+            }
+
+            // Opened
+            this.file = entry.getValue();
+            this.table = table;
+        }
+
+        return table != null;
+    }
+
+    /**
+     * Creates an empty table and imports all records from the player-data.yml file, if it exists. The file is renamed
+     * afterwards.
+     *
+     * @throws IOException if failed to create the table, or to read or rename the file
+     */
+    private void importYaml() throws IOException {
+        // Source
+        File source = new File(directory, FileStorage.FILE);
+        if (!source.isFile()) {
+            replace(create(INITIAL_CAPACITY));
+            return;
+        }
+
+        // Load
+        YamlDocument document = FileStorage.load(getPlugin());
+        List<PlayerInfo> records = new ArrayList<>(document.getStoredValue().size());
+        document.getStoredValue().values().forEach(block -> {
+            if (block.getStoredValue() instanceof PlayerInfo)
+                records.add((PlayerInfo) block.getStoredValue());
+        });
+
+        // Create
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < MAX_CAPACITY && records.size() > capacity * MAX_LOAD)
+            capacity <<= 1;
+        MappedByteBuffer table = create(capacity);
+        for (PlayerInfo info : records)
+            put(table, info);
+        table.force();
+        replace(table);
+
+        // Rename
+        Files.move(source.toPath(), new File(directory, FileStorage.FILE + IMPORTED_SUFFIX).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        getPlugin().getLogger().info("Imported " + records.size() + " records from " + FileStorage.FILE + ".");
+    }
+
+    @Override
+    public boolean sync(@NotNull Collection<PlayerInfo> queued) {
+        try {
+            // Rehash if needed
+            ensureCapacity(queued.size());
+        } catch (IOException ex) {
+            getPlugin().getLogger().log(Level.SEVERE, "Failed to save player information!", ex);
+            return false;
+        }
+
+        // Write
+        MappedByteBuffer table = this.table;
+        long stamp = lock.writeLock();
+        try {
+            for (PlayerInfo info : queued)
+                put(table, info);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        // Flush (the table is only written on this thread)
+        table.force();
+        return true;
+    }
+
+    /**
+     * Rehashes the table into a new one, if inserting the given amount of records could exceed the max load. Must be
+     * called on the persistence thread, without holding the lock; the current table is only read, so the new one is
+     * built while readers proceed, and the lock is only taken to swap it in.
+     *
+     * @param inserted the amount of records to insert
+     * @throws IOException if failed to create the new table
+     */
+    private void ensureCapacity(int inserted) throws IOException {
+        // Capacity
+        MappedByteBuffer table = this.table;
+        int capacity = table.getInt(HEADER_CAPACITY), size = table.getInt(HEADER_SIZE);
+        if (table.getInt(HEADER_DELETED) + size + inserted <= capacity * MAX_LOAD)
+            return;
+
+        // Grow if needed (otherwise only drop tombstones)
+        int grown = capacity;
+        while (grown < MAX_CAPACITY && size + inserted > grown * MAX_LOAD / 2)
+            grown <<= 1;
+        // Full
+        if (grown == capacity && size + inserted > capacity * MAX_LOAD)
+            throw new IOException("Player-data table is full!");
+
+        // Rehash
+        MappedByteBuffer rehashed = create(grown);
+        for (int slot = 0; slot < capacity; slot++) {
+            int base = offset(slot);
+            if ((table.getInt(base + SLOT_FLAGS) & FLAG_OCCUPIED) != 0)
+                insert(rehashed, table.getLong(base + SLOT_MSB), table.getLong(base + SLOT_LSB), table.getInt(base + SLOT_CPS), table.getLong(base + SLOT_TIME));
+        }
+        rehashed.force();
+        replace(rehashed);
+    }
+
+    /**
+     * Creates a new empty table of the next generation with the given capacity. The table is only marked complete (so
+     * it can be opened) by {@link #replace(MappedByteBuffer)}.
+     *
+     * @param capacity the capacity
+     * @return the created table
+     * @throws IOException if failed to create the table
+     */
+    @NotNull
+    private MappedByteBuffer create(int capacity) throws IOException {
+        // Create
+        File file = new File(directory, PREFIX + (++generation) + EXTENSION);
+        MappedByteBuffer table;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            table = channel.map(FileChannel.MapMode.READ_WRITE, 0, offset(capacity));
+        }
+        table.putInt(HEADER_CAPACITY, capacity);
+        return table;
+    }
+
+    /**
+     * Marks the given table complete and replaces the current one with it, holding the write lock only for the swap.
+     * The previous table file is deleted (if that fails, e.g. because it is still mapped, it is deleted on the next
+     * startup).
+     *
+     * @param table the table
+     */
+    private void replace(@NotNull MappedByteBuffer table) {
+        // Complete
+        table.putInt(HEADER_MAGIC, MAGIC);
+        table.force();
+
+        // Replace
+        File previous;
+        long stamp = lock.writeLock();
+        try {
+            previous = this.file;
+            this.file = new File(directory, PREFIX + generation + EXTENSION);
+            this.table = table;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        // Delete
+        if (previous != null)
+            delete(previous);
+    }
+
+    /**
+     * Inserts or updates the record of the given info.
+     *
+     * @param table the table
+     * @param info  the info
+     */
+    private static void put(@NotNull MappedByteBuffer table, @NotNull PlayerInfo info) {
+        UUID uuid = info.getUniqueId();
+        int slot = find(table, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        // Insert
+        if (slot < 0) {
+            insert(table, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), info.getCPS(), info.getTime());
+            return;
+        }
+
+        // Update
+        table.putInt(offset(slot) + SLOT_CPS, info.getCPS());
+        table.putLong(offset(slot) + SLOT_TIME, info.getTime());
+    }
+
+    /**
+     * Inserts the given record, which must not be in the table yet, into the first free (empty or deleted) slot of its
+     * probe sequence. The flags are written last, so a concurrent reader never sees a partially inserted record as
+     * occupied.
+     *
+     * @param table the table
+     * @param msb   the most significant bits of the ID
+     * @param lsb   the least significant bits of the ID
+     * @param cps   the CPS
+     * @param time  the time
+     */
+    private static void insert(@NotNull MappedByteBuffer table, long msb, long lsb, int cps, long time) {
+        int mask = table.getInt(HEADER_CAPACITY) - 1;
+        for (int slot = hash(msb, lsb) & mask; ; slot = (slot + 1) & mask) {
+            int base = offset(slot), flags = table.getInt(base + SLOT_FLAGS);
+            // Occupied
+            if ((flags & FLAG_OCCUPIED) != 0)
+                continue;
+
+            // Write
+            table.putLong(base + SLOT_MSB, msb);
+            table.putLong(base + SLOT_LSB, lsb);
+            table.putInt(base + SLOT_CPS, cps);
+            table.putLong(base + SLOT_TIME, time);
+            table.putInt(base + SLOT_FLAGS, FLAG_OCCUPIED);
+            // Counters
+            table.putInt(HEADER_SIZE, table.getInt(HEADER_SIZE) + 1);
+            if ((flags & FLAG_DELETED) != 0)
+                table.putInt(HEADER_DELETED, table.getInt(HEADER_DELETED) - 1);
+            return;
+        }
+    }
+
+    /**
+     * Returns the slot of the record with the given ID, or <code>-1</code> if there is none.
+     *
+     * @param table the table
+     * @param msb   the most significant bits of the ID
+     * @param lsb   the least significant bits of the ID
+     * @return the slot of the record
+     */
+    private static int find(@NotNull MappedByteBuffer table, long msb, long lsb) {
+        int capacity = table.getInt(HEADER_CAPACITY), mask = capacity - 1;
+        for (int slot = hash(msb, lsb) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int base = offset(slot), flags = table.getInt(base + SLOT_FLAGS);
+            // End of the probe sequence
+            if (flags == 0)
+                return -1;
+            // Found
+            if ((flags & FLAG_OCCUPIED) != 0 && table.getLong(base + SLOT_MSB) == msb && table.getLong(base + SLOT_LSB) == lsb)
+                return slot;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the hash of the given ID.
+     *
+     * @param msb the most significant bits of the ID
+     * @param lsb the least significant bits of the ID
+     * @return the hash
+     */
+    private static int hash(long msb, long lsb) {
+        long hash = msb ^ lsb;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    /**
+     * Returns the offset of the given slot in the table.
+     *
+     * @param slot the slot
+     * @return the offset of the slot
+     */
+    private static int offset(int slot) {
+        return (slot + 1) * SLOT_SIZE;
+    }
+
+    /**
+     * Reads the record of the given player. Can be called from any thread.
+     *
+     * @param uuid the ID of the player
+     * @return the read info, or empty if there is none
+     */
+    @NotNull
+    private PlayerInfo read(@NotNull UUID uuid) {
+        // Optimistic
+        long stamp = lock.tryOptimisticRead();
+        PlayerInfo info = read(table, uuid);
+        if (lock.validate(stamp))
+            return info;
+
+        // Locked
+        stamp = lock.readLock();
+        try {
+            return read(table, uuid);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Reads the record of the given player from the given table.
+     *
+     * @param table the table
+     * @param uuid  the ID of the player
+     * @return the read info, or empty if there is none
+     */
+    @NotNull
+    private PlayerInfo read(@Nullable MappedByteBuffer table, @NotNull UUID uuid) {
+        long fetchTime = getPlugin().getClock().nanoTime();
+        // Not opened
+        if (table == null)
+            return PlayerInfo.empty(uuid, fetchTime);
+
+        // Find
+        int slot = find(table, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        return slot < 0 ? PlayerInfo.empty(uuid, fetchTime) : PlayerInfo.from(uuid, table.getInt(offset(slot) + SLOT_CPS), table.getLong(offset(slot) + SLOT_TIME), fetchTime);
+    }
+
+    @Override
+    public void queueFetch(@NotNull UUID uuid) {
+        passToSampler(read(uuid));
+    }
+
+    @Override
+    public void skipFetch(@NotNull UUID uuid) {
+        // Unused
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<PlayerInfo> fetchSingle(@NotNull UUID uuid, boolean skipCache) {
+        return CompletableFuture.completedFuture(read(uuid));
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<Boolean> delete(@NotNull UUID uuid) {
+        // Delete
+        discard(uuid);
+
+        return submit(() -> {
+            // Find (the table is only written on this thread)
+            MappedByteBuffer table = this.table;
+            int slot = find(table, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (slot < 0)
+                return true;
+
+            // Tombstone
+            long stamp = lock.writeLock();
+            try {
+                table.putInt(offset(slot) + SLOT_FLAGS, FLAG_DELETED);
+                table.putInt(HEADER_SIZE, table.getInt(HEADER_SIZE) - 1);
+                table.putInt(HEADER_DELETED, table.getInt(HEADER_DELETED) + 1);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            // Flush
+            table.force();
+            return true;
+        });
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<Boolean> deleteAll() {
+        // Clear
+        discardAll();
+
+        return submit(() -> {
+            try {
+                // Start over
+                replace(create(INITIAL_CAPACITY));
+                return true;
+            } catch (IOException ex) {
+                getPlugin().getLogger().log(Level.SEVERE, "Failed to delete player information!", ex);
+                return false;
+            }
+        });
+    }
+
+    @Override
+    @NotNull
+    public CompletableFuture<List<PlayerInfo>> fetchLeaderboard(int limit) {
+        // Nothing to fetch
+        if (limit <= 0)
+            return CompletableFuture.completedFuture(Collections.emptyList());
+
+        return CompletableFuture.supplyAsync(() -> {
+            // Scan until the table is not replaced meanwhile
+            List<PlayerInfo> leaderboard;
+            while ((leaderboard = scan(limit)) == null) ;
+            return leaderboard;
+        });
+    }
+
+    /**
+     * Scans the table for the top records. Slots are read in chunks of {@value #SCAN_CHUNK}; each chunk is read
+     * optimistically and only read again under the read lock if a write interfered, so writers are never blocked for
+     * longer than one chunk.
+     *
+     * @param limit the max amount of records, must be at least <code>1</code>
+     * @return the top records, or <code>null</code> if the table has been replaced during the scan
+     */
+    @Nullable
+    private List<PlayerInfo> scan(int limit) {
+        // Not opened
+        MappedByteBuffer table = this.table;
+        if (table == null)
+            return Collections.emptyList();
+
+        // Top slots (min-heap by CPS)
+        PriorityQueue<int[]> top = new PriorityQueue<>(Comparator.comparingInt(entry -> entry[1]));
+        int capacity = table.getInt(HEADER_CAPACITY);
+        int[] slots = new int[Math.min(SCAN_CHUNK, capacity)], cps = new int[slots.length];
+        for (int from = 0; from < capacity; from += SCAN_CHUNK) {
+            int to = Math.min(from + SCAN_CHUNK, capacity), count;
+            // Optimistic
+            long stamp = lock.tryOptimisticRead();
+            count = read(table, from, to, slots, cps);
+            if (!lock.validate(stamp)) {
+                // Locked
+                stamp = lock.readLock();
+                try {
+                    count = read(table, from, to, slots, cps);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            // Replaced
+            if (this.table != table)
+                return null;
+
+            // Add
+            for (int i = 0; i < count; i++) {
+                if (top.size() < limit) {
+                    top.add(new int[]{slots[i], cps[i]});
+                } else if (cps[i] > top.peek()[1]) {
+                    top.poll();
+                    top.add(new int[]{slots[i], cps[i]});
+                }
+            }
+        }
+
+        // Read (slots might have been written since scanned, the leaderboard is only a snapshot)
+        long stamp = lock.readLock();
+        try {
+            // Replaced
+            if (this.table != table)
+                return null;
+
+            long fetchTime = getPlugin().getClock().nanoTime();
+            List<PlayerInfo> leaderboard = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                int base = offset(top.poll()[0]);
+                if ((table.getInt(base + SLOT_FLAGS) & FLAG_OCCUPIED) != 0)
+                    leaderboard.add(PlayerInfo.from(new UUID(table.getLong(base + SLOT_MSB), table.getLong(base + SLOT_LSB)), table.getInt(base + SLOT_CPS), table.getLong(base + SLOT_TIME), fetchTime));
+            }
+            Collections.reverse(leaderboard);
+            return leaderboard;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Reads slots and CPS of all occupied slots in the given range into the given arrays.
+     *
+     * @param table the table
+     * @param from  the first slot (inclusive)
+     * @param to    the last slot (exclusive)
+     * @param slots the array to read the slots into
+     * @param cps   the array to read the CPS into
+     * @return the amount of read slots
+     */
+    private static int read(@NotNull MappedByteBuffer table, int from, int to, @NotNull int[] slots, @NotNull int[] cps) {
+        int count = 0;
+        for (int slot = from; slot < to; slot++) {
+            int base = offset(slot);
+            if ((table.getInt(base + SLOT_FLAGS) & FLAG_OCCUPIED) == 0)
+                continue;
+
+            slots[count] = slot;
+            cps[count++] = table.getInt(base + SLOT_CPS);
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        // Flush
+        MappedByteBuffer table = this.table;
+        if (table != null)
+            table.force();
+    }
+
+    @Override
+    public boolean isInstantFetch() {
+        return true;
+    }
+
+    /**
+     * Maps the given existing table file as a whole.
+     *
+     * @param file the table file
+     * @return the mapped table, or <code>null</code> if the file is too small or too large to be a table
+     * @throws IOException if failed to map the file
+     */
+    @Nullable
+    private static MappedByteBuffer map(@NotNull File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            return size < offset(INITIAL_CAPACITY) || size > offset(MAX_CAPACITY) ? null : channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * Deletes the given file, if it exists. Failures are logged.
+     *
+     * @param file the file to delete
+     */
+    private void delete(@NotNull File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ex) {
+            getPlugin().getLogger().log(Level.WARNING, "Failed to delete " + file.getName() + ", it will be deleted on the next startup.", ex);
+        }
+    }
+
+}
\ No newline at end of file
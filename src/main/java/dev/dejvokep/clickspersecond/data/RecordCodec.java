@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.data;
+
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Codec of fixed-size binary record entries, shared by the binary storage files. Each entry is protected by a
+ * checksum, so a torn write (e.g. on a crash) is detected when reading. An instance is not thread-safe, however,
+ * {@link #decode(byte[], long)} can be called from any thread.
+ * <p>
+ * Entry layout (big-endian, {@value #ENTRY_SIZE} bytes): UUID most and least significant bits, CPS, flags, time, CPS
+ * and times of all channels, CRC32 of all the preceding bytes.
+ * <p>
+ * Deletions of records are encoded as tombstones by {@link #encodeDeletion(UUID, byte[])} only; an info is always
+ * encoded as a record, even if its primary record is empty (only a channel record might be set).
+ */
+final class RecordCodec {
+
+    /**
+     * Size of an entry in bytes.
+     */
+    static final int ENTRY_SIZE = 72;
+
+    /**
+     * Amount of channels in an entry.
+     */
+    private static final int CHANNELS = 3;
+
+    /**
+     * Flag indicating the entry contains per-channel records.
+     */
+    private static final int FLAG_CHANNELS = 1;
+
+    /**
+     * Flag indicating the entry is a tombstone.
+     */
+    private static final int FLAG_DELETED = 2;
+
+    /**
+     * Offset of the flags in an entry.
+     */
+    private static final int FLAGS_OFFSET = 20;
+
+    /**
+     * Offset of the checksum in an entry.
+     */
+    private static final int CHECKSUM_OFFSET = ENTRY_SIZE - 4;
+
+    // Checksum
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Initializes the codec.
+     */
+    RecordCodec() {
+        // Layout must cover all channels
+        if (ClickChannel.VALUES.length != CHANNELS)
+            throw new IllegalStateException("Entry layout does not match the click channels!");
+    }
+
+    /**
+     * Encodes the given info into the given entry array.
+     *
+     * @param info  the info to encode
+     * @param entry the entry array, of size {@link #ENTRY_SIZE}
+     */
+    void encode(@NotNull PlayerInfo info, byte[] entry) {
+        ByteBuffer buffer = ByteBuffer.wrap(entry);
+        buffer.putLong(info.getUniqueId().getMostSignificantBits());
+        buffer.putLong(info.getUniqueId().getLeastSignificantBits());
+        buffer.putInt(info.getCPS());
+        buffer.putInt(info.hasChannels() ? FLAG_CHANNELS : 0);
+        buffer.putLong(info.getTime());
+        for (ClickChannel channel : ClickChannel.VALUES)
+            buffer.putInt(info.getCPS(channel));
+        for (ClickChannel channel : ClickChannel.VALUES)
+            buffer.putLong(info.getTime(channel));
+        seal(entry);
+    }
+
+    /**
+     * Encodes a tombstone of the given player's record into the given entry array.
+     *
+     * @param uuid  the ID of the player
+     * @param entry the entry array, of size {@link #ENTRY_SIZE}
+     */
+    void encodeDeletion(@NotNull UUID uuid, byte[] entry) {
+        ByteBuffer buffer = ByteBuffer.wrap(entry);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+        buffer.putInt(0);
+        buffer.putInt(FLAG_DELETED);
+        while (buffer.position() < CHECKSUM_OFFSET)
+            buffer.put((byte) 0);
+        seal(entry);
+    }
+
+    /**
+     * Writes the checksum of the given entry.
+     *
+     * @param entry the entry array, of size {@link #ENTRY_SIZE}
+     */
+    private void seal(byte[] entry) {
+        crc.reset();
+        crc.update(entry, 0, CHECKSUM_OFFSET);
+        ByteBuffer.wrap(entry).putInt(CHECKSUM_OFFSET, (int) crc.getValue());
+    }
+
+    /**
+     * Returns if the checksum of the given entry is valid.
+     *
+     * @param entry the entry array, of size {@link #ENTRY_SIZE}
+     * @return if the entry is valid
+     */
+    boolean verify(byte[] entry) {
+        crc.reset();
+        crc.update(entry, 0, CHECKSUM_OFFSET);
+        return (int) crc.getValue() == ByteBuffer.wrap(entry).getInt(CHECKSUM_OFFSET);
+    }
+
+    /**
+     * Returns if the given entry is a tombstone (see {@link #encodeDeletion(UUID, byte[])}). Can be called from any
+     * thread.
+     *
+     * @param entry the entry array, of size {@link #ENTRY_SIZE}
+     * @return if the entry is a tombstone
+     */
+    static boolean isDeletion(byte[] entry) {
+        return (ByteBuffer.wrap(entry).getInt(FLAGS_OFFSET) & FLAG_DELETED) != 0;
+    }
+
+    /**
+     * Decodes info from the given entry. Tombstones are decoded as empty info.
+     *
+     * @param entry     the entry array, of size {@link #ENTRY_SIZE}
+     * @param fetchTime fetch time of the info
+     * @return the decoded info
+     */
+    @NotNull
+    static PlayerInfo decode(byte[] entry, long fetchTime) {
+        ByteBuffer buffer = ByteBuffer.wrap(entry);
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        int cps = buffer.getInt(), flags = buffer.getInt();
+        long time = buffer.getLong();
+        // Tombstone
+        if ((flags & FLAG_DELETED) != 0)
+            return PlayerInfo.empty(uuid, fetchTime);
+        // Without channels
+        if ((flags & FLAG_CHANNELS) == 0)
+            return PlayerInfo.from(uuid, cps, time, fetchTime);
+
+        // Channels
+        int[] channelCPS = new int[CHANNELS];
+        long[] channelTimes = new long[CHANNELS];
+        for (int i = 0; i < CHANNELS; i++)
+            channelCPS[i] = buffer.getInt();
+        for (int i = 0; i < CHANNELS; i++)
+            channelTimes[i] = buffer.getLong();
+        return PlayerInfo.from(uuid, cps, time, fetchTime, channelCPS, channelTimes);
+    }
+
+}
\ No newline at end of file
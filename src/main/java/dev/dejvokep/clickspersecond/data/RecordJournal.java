@@ -0,0 +1,250 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.data;
+
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Append-only write-ahead journal of record updates. Each update is written as a fixed-size binary entry protected by
+ * a checksum, so a torn write at the end of the journal (e.g. on a crash) is detected and discarded on replay.
+ * <p>
+ * Updates can be {@link #append(PlayerInfo) appended} from any thread; they are buffered in memory and written by
+ * {@link #commit()} in one write followed by one force (group commit). All methods except {@link #append(PlayerInfo)}
+ * must only be called by a single thread.
+ * <p>
+ * Deletions are journaled as tombstones, so records deleted after they were journaled are not replayed. Entries are
+ * encoded by {@link RecordCodec}.
+ */
+public class RecordJournal {
+
+    /**
+     * Size of an entry in bytes.
+     */
+    public static final int ENTRY_SIZE = RecordCodec.ENTRY_SIZE;
+
+    /**
+     * Nil ID, used for tombstones of all records.
+     */
+    private static final UUID NIL = new UUID(0L, 0L);
+
+    // File channel
+    private final FileChannel channel;
+    // Appended entries pending commit
+    private final ConcurrentLinkedQueue<Entry> appended = new ConcurrentLinkedQueue<>();
+    // Write buffer
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(ENTRY_SIZE * 64);
+    // Codec
+    private final RecordCodec codec = new RecordCodec();
+    // Encoded entry
+    private final byte[] entry = new byte[ENTRY_SIZE];
+
+    /**
+     * Opens (or creates) the journal at the given path. Call {@link #replay(Clock)} before committing.
+     *
+     * @param file the journal file
+     * @throws IOException if failed to open the file
+     */
+    public RecordJournal(@NotNull Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Reads all valid entries of the journal. Reading stops at the first incomplete or corrupted entry, which (and
+     * everything after it) is discarded. Following commits append after the last valid entry.
+     * <p>
+     * Tombstones are applied while reading, so the returned entries only contain the last entry of each player whose
+     * record was not deleted afterwards.
+     *
+     * @param clock the clock to obtain fetch time of the entries from
+     * @return the valid entries, in order of the last write
+     * @throws IOException if failed to read the file
+     */
+    @NotNull
+    public List<PlayerInfo> replay(@NotNull Clock clock) throws IOException {
+        // Read
+        ByteBuffer data = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE));
+        channel.position(0);
+        while (data.hasRemaining() && channel.read(data) >= 0) ;
+        data.flip();
+
+        // Decode
+        Map<UUID, PlayerInfo> entries = new LinkedHashMap<>();
+        long fetchTime = clock.nanoTime(), valid = 0;
+        while (data.remaining() >= ENTRY_SIZE) {
+            data.get(entry);
+            // Verify
+            if (!codec.verify(entry))
+                break;
+            valid += ENTRY_SIZE;
+
+            // Decode
+            PlayerInfo info = RecordCodec.decode(entry, fetchTime);
+            // Tombstone
+            if (RecordCodec.isDeletion(entry)) {
+                if (info.getUniqueId().equals(NIL))
+                    entries.clear();
+                else
+                    entries.remove(info.getUniqueId());
+                continue;
+            }
+
+            // Replace
+            entries.remove(info.getUniqueId());
+            entries.put(info.getUniqueId(), info);
+        }
+
+        // Discard the invalid tail
+        channel.truncate(valid);
+        channel.position(valid);
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Appends the given info to the journal. It will be written by the next {@link #commit()}. Can be called from any
+     * thread.
+     *
+     * @param info the info to append
+     */
+    public void append(@NotNull PlayerInfo info) {
+        appended.add(new Entry(info.getUniqueId(), info));
+    }
+
+    /**
+     * Appends a tombstone of the given player's record to the journal. It will be written by the next {@link
+     * #commit()}. Can be called from any thread.
+     *
+     * @param uuid the ID of the player
+     */
+    public void appendDeletion(@NotNull UUID uuid) {
+        appended.add(new Entry(uuid, null));
+    }
+
+    /**
+     * Appends a tombstone of all records to the journal. It will be written by the next {@link #commit()}. Can be
+     * called from any thread.
+     */
+    public void appendWipe() {
+        appendDeletion(NIL);
+    }
+
+    /**
+     * Writes all appended entries and forces them to the disk.
+     *
+     * @return the amount of written entries
+     * @throws IOException if failed to write
+     */
+    public int commit() throws IOException {
+        // Encode
+        int count = 0;
+        buffer.clear();
+        Entry pending;
+        while ((pending = appended.poll()) != null) {
+            // Grow
+            if (buffer.remaining() < ENTRY_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            if (pending.info == null)
+                codec.encodeDeletion(pending.uuid, entry);
+            else
+                codec.encode(pending.info, entry);
+            buffer.put(entry);
+            count++;
+        }
+
+        // Nothing to write
+        if (count == 0)
+            return 0;
+
+        // Write and force
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        channel.force(false);
+        return count;
+    }
+
+    /**
+     * Truncates the journal, discarding all written entries. Should only be called once all of them were confirmed to
+     * be persisted by the data storage.
+     *
+     * @throws IOException if failed to truncate
+     */
+    public void truncate() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+    }
+
+    /**
+     * Returns the size of the journal in bytes.
+     *
+     * @return the size of the journal
+     * @throws IOException if failed to obtain the size
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Closes the journal. Entries appended but not yet committed are discarded.
+     *
+     * @throws IOException if failed to close
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * An appended entry pending commit.
+     */
+    private static class Entry {
+
+        // ID of the player
+        private final UUID uuid;
+        // Info, or null if a tombstone
+        private final PlayerInfo info;
+
+        /**
+         * Initializes the entry.
+         *
+         * @param uuid the ID of the player
+         * @param info the info, or <code>null</code> if a tombstone
+         */
+        private Entry(@NotNull UUID uuid, @Nullable PlayerInfo info) {
+            this.uuid = uuid;
+            this.info = info;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.data;
+
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent queue of player information pending sync, keyed by player. Each player has at most one pending entry,
+ * which is always the one with the highest record; offering a lower record than the pending one is a no-op.
+ * <p>
+ * Entries can be {@link #offer(PlayerInfo) offered} from any thread and are {@link #drain() drained} by a single
+ * persistence thread. The queue is bounded by a soft limit - once reached, offers report the queue as saturated, so the
+ * caller can request an early flush. Entries are never dropped, as that would lose records; since each player holds at
+ * most one entry, the queue cannot outgrow the amount of players with pending records anyway.
+ * <p>
+ * Players discarded since the last drain are remembered, so drained entries of players deleted while the entries were
+ * being synced are not {@link #requeue(Collection) requeued}. Draining and discarding are mutually exclusive (offering
+ * is not affected).
+ */
+public class SyncQueue {
+
+    // Pending entries
+    private final ConcurrentHashMap<UUID, PlayerInfo> pending = new ConcurrentHashMap<>();
+    // Players discarded since the last drain, if all were
+    private final Set<UUID> discarded = ConcurrentHashMap.newKeySet();
+    private volatile boolean discardedAll = false;
+    // Soft limit
+    private volatile int limit;
+
+    // Metrics
+    private final AtomicLong offered = new AtomicLong(), coalesced = new AtomicLong(), saturated = new AtomicLong(), synced = new AtomicLong();
+    private volatile int highWaterMark = 0;
+
+    /**
+     * Initializes the queue.
+     *
+     * @param limit the soft limit, must be at least <code>1</code>
+     */
+    public SyncQueue(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Offers the given info for sync. If there already is a pending entry of the same player, keeps the one with the
+     * higher record (the given one on ties, as it is newer).
+     *
+     * @param info the info to offer
+     * @return if the queue is saturated (at or above the limit), in which case it should be flushed early
+     */
+    public boolean offer(@NotNull PlayerInfo info) {
+        offered.incrementAndGet();
+        pending.merge(info.getUniqueId(), info, this::higher);
+
+        // Size
+        int size = pending.size();
+        if (size > highWaterMark)
+            highWaterMark = size;
+        // Saturated
+        if (size < limit)
+            return false;
+        saturated.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Returns the info with the higher record, counting the coalescing.
+     *
+     * @param pending the pending info
+     * @param offered the offered info
+     * @return the info with the higher record
+     */
+    @NotNull
+    private PlayerInfo higher(@NotNull PlayerInfo pending, @NotNull PlayerInfo offered) {
+        coalesced.incrementAndGet();
+        return offered.getCPS() >= pending.getCPS() ? offered : pending;
+    }
+
+    /**
+     * Removes and returns all pending entries. Entries offered concurrently are either included, or left for the next
+     * drain.
+     *
+     * @return the drained entries
+     */
+    @NotNull
+    public synchronized List<PlayerInfo> drain() {
+        // Start over
+        discarded.clear();
+        discardedAll = false;
+        // Drain
+        List<PlayerInfo> drained = new ArrayList<>(pending.size());
+        for (UUID uuid : pending.keySet()) {
+            PlayerInfo info = pending.remove(uuid);
+            if (info != null)
+                drained.add(info);
+        }
+        synced.addAndGet(drained.size());
+        return drained;
+    }
+
+    /**
+     * Queues the given previously drained entries again (e.g. after a failed sync). Pending entries offered meanwhile
+     * are kept, unless lower than the requeued one. Entries of players {@link #isDiscarded(UUID) discarded} since the
+     * drain are skipped.
+     *
+     * @param drained the drained entries
+     */
+    public synchronized void requeue(@NotNull Collection<PlayerInfo> drained) {
+        for (PlayerInfo info : drained) {
+            if (!isDiscarded(info.getUniqueId()))
+                pending.merge(info.getUniqueId(), info, (pending, requeued) -> requeued.getCPS() > pending.getCPS() ? requeued : pending);
+        }
+        synced.addAndGet(-drained.size());
+    }
+
+    /**
+     * Discards pending entry of the given player, if any.
+     *
+     * @param uuid the ID of the player
+     */
+    public synchronized void discard(@NotNull UUID uuid) {
+        pending.remove(uuid);
+        discarded.add(uuid);
+    }
+
+    /**
+     * Discards all pending entries.
+     */
+    public synchronized void discardAll() {
+        pending.clear();
+        discardedAll = true;
+    }
+
+    /**
+     * Returns if the given player has been discarded since the last drain, in which case drained entries of the player
+     * are outdated.
+     *
+     * @param uuid the ID of the player
+     * @return if the player has been discarded
+     */
+    public boolean isDiscarded(@NotNull UUID uuid) {
+        return discardedAll || discarded.contains(uuid);
+    }
+
+    /**
+     * Sets the soft limit.
+     *
+     * @param limit the soft limit, must be at least <code>1</code>
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Returns if there are no pending entries.
+     *
+     * @return if the queue is empty
+     */
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Returns the amount of pending entries.
+     *
+     * @return the amount of pending entries
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    /**
+     * Returns the highest amount of pending entries observed (approximate, as concurrent offers may race).
+     *
+     * @return the high-water mark
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Returns the total amount of offered entries.
+     *
+     * @return the amount of offered entries
+     */
+    public long getOffered() {
+        return offered.get();
+    }
+
+    /**
+     * Returns the total amount of offered entries which were coalesced with a pending entry of the same player.
+     *
+     * @return the amount of coalesced entries
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Returns the total amount of offers which found the queue saturated.
+     *
+     * @return the amount of saturated offers
+     */
+    public long getSaturated() {
+        return saturated.get();
+    }
+
+    /**
+     * Returns the total amount of drained (synced) entries.
+     *
+     * @return the amount of synced entries
+     */
+    public long getSynced() {
+        return synced.get();
+    }
+
+}
\ No newline at end of file
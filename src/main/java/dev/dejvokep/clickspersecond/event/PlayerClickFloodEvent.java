@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.event;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Called (on the main thread) when a player has made more clicks during one tick than allowed by the flood cap, or than
+ * fit the click queue. The excess clicks have already been discarded.
+ * <p>
+ * Only called if enabled in the configuration.
+ */
+public class PlayerClickFloodEvent extends PlayerEvent {
+
+    // Handlers
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    // Overflow
+    private final int overflow;
+
+    /**
+     * Initializes the event.
+     *
+     * @param player   the player
+     * @param overflow amount of clicks discarded during the tick
+     */
+    public PlayerClickFloodEvent(@NotNull Player player, int overflow) {
+        super(player);
+        this.overflow = overflow;
+    }
+
+    /**
+     * Returns the amount of clicks discarded during the tick.
+     *
+     * @return the amount of discarded clicks
+     */
+    public int getOverflow() {
+        return overflow;
+    }
+
+    @NotNull
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    /**
+     * Returns the handler list of this event.
+     *
+     * @return the handler list
+     */
+    @NotNull
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler;
+
+import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.handler.sampler.ChanneledSampler;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Implementation of {@link ClickHandler} which has sliding window CPS sampling of all click channels.
+ */
+public class ChanneledHandler extends ClickHandler<ChanneledSampler> {
+
+    // Amount of buckets
+    private final int buckets;
+
+    /**
+     * Initializes the handler.
+     *
+     * @param plugin  the plugin
+     * @param buckets amount of buckets to divide each second into, between <code>1</code> and <code>1000</code>
+     */
+    public ChanneledHandler(@NotNull ClicksPerSecond plugin, int buckets) {
+        super(plugin);
+        this.buckets = buckets;
+    }
+
+    @Override
+    protected ChanneledSampler createSampler(@NotNull Player player) {
+        return new ChanneledSampler(buckets, PlayerInfo.initial(player.getUniqueId()), getPlugin().getClock());
+    }
+
+    @Override
+    public boolean isMultiChannel() {
+        return true;
+    }
+
+    @Override
+    public int getMinDisplayRate() {
+        return 1;
+    }
+
+}
\ No newline at end of file
@@ -16,56 +16,128 @@
 package dev.dejvokep.clickspersecond.handler;
 
 import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.event.PlayerClickFloodEvent;
+import dev.dejvokep.clickspersecond.handler.ingest.ClickRing;
+import dev.dejvokep.clickspersecond.handler.sampler.ClickAnalytics;
 import dev.dejvokep.clickspersecond.handler.sampler.Sampler;
+import dev.dejvokep.clickspersecond.utils.collection.UUIDMap;
 import dev.dejvokep.clickspersecond.utils.container.PlayerContainer;
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
 import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * An abstract class for click and CPS handlers.
+ * <p>
+ * Clicks are ingested in two stages. {@link #processClick(UUID) Processing} a click only appends its time to the
+ * player's {@link ClickRing}; if the ring had no clicks pending yet, it is also marked dirty and queued. The dirty rings
+ * are then drained in batches once per tick, which is when the clicks are added to the samplers and record changes are
+ * queued for sync. Players who are not clicking, therefore, cost nothing per tick.
+ * <p>
+ * The rings and samplers are looked up in copy-on-write snapshots, which are replaced whenever a player is added or
+ * removed. Clicks can, therefore, be processed from any thread, as long as clicks of each player are only processed by
+ * one thread at a time (the rings are single-producer), and samplers can be looked up from any thread (e.g. by
+ * asynchronous placeholder requests).
+ * <p>
+ * If a player makes more clicks during one tick than allowed by the flood cap, the excess clicks are only counted, but
+ * not passed to the sampler. Clicks dropped because the player's ring was full are counted the same way.
+ * <p>
+ * The {@link ClickChannel channel} of each click is stored in the lowest bits of its queued time, which only costs a
+ * few nanoseconds of precision.
  */
 public abstract class ClickHandler<T extends Sampler> implements PlayerContainer {
 
-    // Samplers
-    private final Map<UUID, T> samplers;
+    /**
+     * Mask of the queued click time bits which hold the channel ordinal.
+     */
+    private static final long CHANNEL_MASK = 0b11;
+
+    // Samplers (copy-on-write snapshot)
+    private volatile UUIDMap<T> samplers = new UUIDMap<>();
+    // Click rings (copy-on-write snapshot)
+    private volatile UUIDMap<ClickRing> rings = new UUIDMap<>();
+    // IDs of players whose rings are dirty
+    private final Queue<UUID> dirty = new ConcurrentLinkedQueue<>();
+    // Batch of drained click times
+    private final long[] batch = new long[ClickRing.DEFAULT_CAPACITY];
     // Plugin
     private final ClicksPerSecond plugin;
+    // Drain task
+    private final BukkitTask drainTask;
+    // Peak window in seconds
+    private final int peakWindow;
+    // If click analytics are enabled
+    private final boolean analytics;
+    // Max clicks per player per tick (0 if unlimited), if to call flood events
+    private final int floodCap;
+    private final boolean floodEvent;
+    // Total clicks discarded by the flood cap
+    private long overflow = 0;
 
     /**
      * Initializes the handler.
      *
-     * @param plugin   the plugin
-     * @param samplers the sampler map
+     * @param plugin the plugin
      */
-    public ClickHandler(@NotNull ClicksPerSecond plugin, @NotNull Map<UUID, T> samplers) {
+    public ClickHandler(@NotNull ClicksPerSecond plugin) {
         this.plugin = plugin;
-        this.samplers = samplers;
+        this.peakWindow = Math.min(Math.max(plugin.getConfiguration().getInt("peak-window"), 1), 3600);
+        this.analytics = plugin.getConfiguration().getBoolean("click-analytics");
+        this.floodCap = Math.max(plugin.getConfiguration().getInt("flood-cap.clicks-per-tick"), 0);
+        this.floodEvent = plugin.getConfiguration().getBoolean("flood-cap.call-event");
+        this.drainTask = Bukkit.getScheduler().runTaskTimer(plugin, this::drain, 1L, 1L);
     }
 
     @Override
     public void add(@NotNull Player player) {
+        // Create
+        T sampler = createSampler(player);
+        sampler.trackPeak(peakWindow);
+        if (analytics)
+            sampler.enableAnalytics();
         // Add
-        samplers.put(player.getUniqueId(), createSampler(player));
+        UUIDMap<T> samplers = new UUIDMap<>(this.samplers);
+        samplers.put(player.getUniqueId(), sampler);
+        this.samplers = samplers;
+        UUIDMap<ClickRing> rings = new UUIDMap<>(this.rings);
+        rings.put(player.getUniqueId(), new ClickRing());
+        this.rings = rings;
         // Fetch
         plugin.getDataStorage().queueFetch(player.getUniqueId());
     }
 
     @Override
     public void remove(@NotNull Player player) {
+        // Sampler
+        UUIDMap<T> samplers = new UUIDMap<>(this.samplers);
+        T sampler = samplers.remove(player.getUniqueId());
         // If absent
-        if (!samplers.containsKey(player.getUniqueId()))
+        if (sampler == null)
             return;
+        this.samplers = samplers;
+
+        // Remove the ring
+        UUIDMap<ClickRing> rings = new UUIDMap<>(this.rings);
+        ClickRing ring = rings.remove(player.getUniqueId());
+        this.rings = rings;
+        // Drain the remaining clicks
+        if (ring != null)
+            drain(player.getUniqueId(), ring, sampler);
 
-        // Remove
-        PlayerInfo info = samplers.remove(player.getUniqueId()).close();
+        // Close
+        boolean updated = sampler.close();
+        destroySampler(sampler);
         // Update
-        if (info != null)
-            plugin.getDataStorage().sync(info);
+        if (updated)
+            plugin.getDataStorage().sync(sampler.getInfo());
     }
 
     /**
@@ -77,14 +149,34 @@ public abstract class ClickHandler<T extends Sampler> implements PlayerContainer
     protected abstract T createSampler(@NotNull Player player);
 
     /**
-     * Sets the newly fetched info to the appropriate {@link Sampler} for caching during player connection lifetime.
+     * Called after at least one click of the given player was drained into their sampler.
+     *
+     * @param uuid    the ID
+     * @param sampler the sampler
+     */
+    protected void onClick(@NotNull UUID uuid, @NotNull T sampler) {
+        // Nothing by default
+    }
+
+    /**
+     * Destroys the given (already closed) sampler. Called when removing a player from the handler.
+     *
+     * @param sampler the sampler to destroy
+     */
+    protected void destroySampler(@NotNull T sampler) {
+        // Nothing by default
+    }
+
+    /**
+     * Sets the newly fetched info to the appropriate {@link Sampler} for caching during player connection lifetime. If
+     * the sampler holds a better record (achieved while the info was loading), it is synced again.
      *
      * @param info the info to set
      */
     public void setFetchedInfo(@NotNull PlayerInfo info) {
         Sampler sampler = getSampler(info.getUniqueId());
-        if (sampler != null)
-            sampler.setFetchedInfo(info);
+        if (sampler != null && sampler.setFetchedInfo(info))
+            plugin.getDataStorage().sync(sampler.getInfo());
     }
 
     /**
@@ -113,24 +205,148 @@ public abstract class ClickHandler<T extends Sampler> implements PlayerContainer
     }
 
     /**
-     * Processes click of {@link Player} represented by the given ID.
+     * Processes {@link ClickChannel#LEFT left} click of {@link Player} represented by the given ID, made now. The click
+     * is only queued and will be added to the appropriate {@link Sampler} during the next drain.
      *
      * @param uuid the ID
      */
     public void processClick(@NotNull UUID uuid) {
-        // Sampler
-        Sampler sampler = samplers.get(uuid);
-        // If null
-        if (sampler == null)
-            return;
-        // Add click
-        PlayerInfo updated = sampler.addClick();
-        // No update
-        if (updated == null)
+        processClick(uuid, plugin.getClock().nanoTime(), ClickChannel.LEFT);
+    }
+
+    /**
+     * Processes click of the given channel of {@link Player} represented by the given ID, made now. The click is only
+     * queued and will be added to the appropriate {@link Sampler} during the next drain.
+     *
+     * @param uuid    the ID
+     * @param channel the channel of the click
+     */
+    public void processClick(@NotNull UUID uuid, @NotNull ClickChannel channel) {
+        processClick(uuid, plugin.getClock().nanoTime(), channel);
+    }
+
+    /**
+     * Processes {@link ClickChannel#LEFT left} click of {@link Player} represented by the given ID, made at the given
+     * monotonic time (see {@link dev.dejvokep.clickspersecond.utils.clock.Clock#nanoTime()}). The click is only queued
+     * and will be added to the appropriate {@link Sampler} during the next drain.
+     * <p>
+     * This method is thread-safe, as long as clicks of each player are only processed by one thread at a time.
+     *
+     * @param uuid the ID
+     * @param time the monotonic time at which the click was made
+     */
+    public void processClick(@NotNull UUID uuid, long time) {
+        processClick(uuid, time, ClickChannel.LEFT);
+    }
+
+    /**
+     * Processes click of the given channel of {@link Player} represented by the given ID, made at the given monotonic
+     * time (see {@link dev.dejvokep.clickspersecond.utils.clock.Clock#nanoTime()}). The click is only queued and will
+     * be added to the appropriate {@link Sampler} during the next drain.
+     * <p>
+     * This method is thread-safe, as long as clicks of each player are only processed by one thread at a time.
+     *
+     * @param uuid    the ID
+     * @param time    the monotonic time at which the click was made
+     * @param channel the channel of the click
+     */
+    public void processClick(@NotNull UUID uuid, long time, @NotNull ClickChannel channel) {
+        // Ring
+        ClickRing ring = rings.get(uuid);
+        // Queue
+        if (ring != null && ring.offer((time & ~CHANNEL_MASK) | channel.ordinal()) && ring.markDirty())
+            dirty.offer(uuid);
+    }
+
+    /**
+     * Drains clicks queued in all dirty rings into the appropriate samplers.
+     */
+    private void drain() {
+        // Snapshots
+        UUIDMap<ClickRing> rings = this.rings;
+        UUIDMap<T> samplers = this.samplers;
+        // Drain
+        UUID uuid;
+        while ((uuid = dirty.poll()) != null) {
+            // Ring and sampler (absent if the player has left)
+            ClickRing ring = rings.get(uuid);
+            T sampler = samplers.get(uuid);
+            if (ring == null || sampler == null)
+                continue;
+
+            // Drain
+            if (drain(uuid, ring, sampler) > 0)
+                onClick(uuid, sampler);
+        }
+    }
+
+    /**
+     * Drains all clicks queued in the given ring into the given sampler, up to the flood cap. If any of the clicks
+     * resulted in a record change, the latest record is queued for sync.
+     *
+     * @param uuid    the ID of the player
+     * @param ring    the ring to drain
+     * @param sampler the sampler to drain into
+     * @return the amount of clicks passed to the sampler
+     */
+    private int drain(@NotNull UUID uuid, @NotNull ClickRing ring, @NotNull T sampler) {
+        // Clean (clicks offered from now on will queue the ring again)
+        ring.clearDirty();
+        // If the record has changed
+        boolean updated = false;
+        // Analytics
+        ClickAnalytics analytics = sampler.getAnalytics();
+
+        // Drain
+        int count, accepted = 0, overflow = 0;
+        while ((count = ring.poll(batch)) > 0) {
+            // Saturate
+            int allowed = floodCap == 0 ? count : Math.min(count, floodCap - accepted);
+            overflow += count - allowed;
+            accepted += allowed;
+
+            for (int i = 0; i < allowed; i++) {
+                // Decode
+                ClickChannel channel = ClickChannel.VALUES[(int) (batch[i] & CHANNEL_MASK)];
+                long time = batch[i] & ~CHANNEL_MASK;
+                // Analyze
+                if (analytics != null && channel.isPrimary())
+                    analytics.add(time);
+                // Add click
+                if (sampler.addClick(time, channel))
+                    updated = true;
+            }
+        }
+
+        // Update (one snapshot per drain)
+        if (updated)
+            plugin.getDataStorage().sync(sampler.getInfo());
+        // Dropped by the ring (never reached the flood cap)
+        overflow += ring.takeDropped();
+        // Flood
+        if (overflow > 0)
+            onFlood(uuid, overflow);
+        return accepted;
+    }
+
+    /**
+     * Counts the given amount of clicks discarded by the flood cap and, if enabled, calls
+     * {@link PlayerClickFloodEvent}.
+     *
+     * @param uuid     the ID of the player
+     * @param overflow the amount of discarded clicks
+     */
+    private void onFlood(@NotNull UUID uuid, int overflow) {
+        // Count
+        this.overflow += overflow;
+        // Not calling
+        if (!floodEvent)
             return;
 
-        // Update
-        plugin.getDataStorage().sync(updated);
+        // Call
+        Player player = Bukkit.getPlayer(uuid);
+        if (player != null)
+            Bukkit.getPluginManager().callEvent(new PlayerClickFloodEvent(player, overflow));
     }
 
     /**
@@ -144,6 +360,17 @@ public abstract class ClickHandler<T extends Sampler> implements PlayerContainer
         return sampler == null ? -1 : sampler.getCPS();
     }
 
+    /**
+     * Returns the peak CPS of the given player (see {@link Sampler#getPeak()}), or <code>-1</code> if not online.
+     *
+     * @param player the player
+     * @return peak CPS of the given player
+     */
+    public int getPeak(@NotNull Player player) {
+        Sampler sampler = getSampler(player.getUniqueId());
+        return sampler == null ? -1 : sampler.getPeak();
+    }
+
     /**
      * Returns the smallest display refresh rate (delay between refreshes) which will be able to reflect CPS changes by
      * the currently used {@link Sampler}.
@@ -153,12 +380,51 @@ public abstract class ClickHandler<T extends Sampler> implements PlayerContainer
     public abstract int getMinDisplayRate();
 
     /**
-     * Returns the samplers.
+     * Returns if the samplers track {@link ClickChannel channels} separately, in which case clicks of all channels
+     * (not only primary ones) should be processed.
+     *
+     * @return if the handler is multi-channel
+     */
+    public boolean isMultiChannel() {
+        return false;
+    }
+
+    /**
+     * Closes the handler and cancels all of its tasks. Samplers of all online players are closed first, so their last
+     * peaks are queued for sync before the data storage closes.
+     */
+    public void close() {
+        Bukkit.getOnlinePlayers().forEach(this::remove);
+        drainTask.cancel();
+    }
+
+    /**
+     * Returns the total amount of clicks discarded by the flood cap.
+     *
+     * @return the amount of discarded clicks
+     */
+    public long getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * Returns the current snapshot of the samplers, which must not be modified.
      *
      * @return the samplers
      */
-    public Map<UUID, T> getSamplers() {
+    @NotNull
+    public UUIDMap<T> getSamplers() {
         return samplers;
     }
 
+    /**
+     * Returns the plugin.
+     *
+     * @return the plugin
+     */
+    @NotNull
+    public ClicksPerSecond getPlugin() {
+        return plugin;
+    }
+
 }
\ No newline at end of file
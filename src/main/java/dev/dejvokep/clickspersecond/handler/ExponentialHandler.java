@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler;
+
+import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.handler.sampler.ExponentialSampler;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Implementation of {@link ClickHandler} which has exponentially-weighted CPS sampling. Samplers do not store any
+ * clicks, so no sweeping is needed.
+ */
+public class ExponentialHandler extends ClickHandler<ExponentialSampler> {
+
+    // Time constant in milliseconds
+    private final int timeConstant;
+
+    /**
+     * Initializes the handler.
+     *
+     * @param plugin       the plugin
+     * @param timeConstant time constant of the decay in milliseconds
+     */
+    public ExponentialHandler(@NotNull ClicksPerSecond plugin, int timeConstant) {
+        super(plugin);
+        this.timeConstant = timeConstant;
+    }
+
+    @Override
+    protected ExponentialSampler createSampler(@NotNull Player player) {
+        return new ExponentialSampler(timeConstant, PlayerInfo.initial(player.getUniqueId()), getPlugin().getClock());
+    }
+
+    @Override
+    public int getMinDisplayRate() {
+        return 1;
+    }
+
+}
\ No newline at end of file
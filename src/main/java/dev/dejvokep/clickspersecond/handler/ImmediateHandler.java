@@ -17,38 +17,80 @@ package dev.dejvokep.clickspersecond.handler;
 
 import dev.dejvokep.clickspersecond.ClicksPerSecond;
 import dev.dejvokep.clickspersecond.handler.sampler.ImmediateSampler;
+import dev.dejvokep.clickspersecond.utils.collection.UUIDMap;
 import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 /**
- * Implementation of {@link ClickHandler} which has instant CPS sampling with queues.
+ * Implementation of {@link ClickHandler} which has instant CPS sampling with ring buffers.
+ * <p>
+ * Outdated clicks are removed lazily by the samplers themselves (whenever a click is added or CPS are read), so no
+ * work is done while nobody is clicking. Optionally, a low-frequency sweep can be enabled to free clicks of idle
+ * players. The sweep only visits active samplers - those which have clicked since they were last found idle.
  */
 public class ImmediateHandler extends ClickHandler<ImmediateSampler> {
 
+    // Active samplers
+    private final UUIDMap<ImmediateSampler> active = new UUIDMap<>();
+    // Samplers found idle during a sweep
+    private final List<UUID> idle = new ArrayList<>();
+    // Sweep task
+    private final BukkitTask sweepTask;
+
     /**
      * Initializes the handler.
      *
-     * @param plugin the plugin
+     * @param plugin    the plugin
+     * @param sweepRate delay between sweeps of outdated clicks in ticks, or <code>0</code> to disable sweeping
+     */
+    public ImmediateHandler(@NotNull ClicksPerSecond plugin, int sweepRate) {
+        super(plugin);
+
+        // Schedule sweep
+        sweepTask = sweepRate <= 0 ? null : Bukkit.getScheduler().runTaskTimer(plugin, this::sweep, sweepRate, sweepRate);
+    }
+
+    /**
+     * Sweeps all active samplers, queues finished records for sync and deactivates samplers which are idle.
      */
-    public ImmediateHandler(@NotNull ClicksPerSecond plugin) {
-        super(plugin, new ConcurrentHashMap<>());
-
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                while (true)
-                    getSamplers().forEach((player, sampler) -> sampler.clear());
-            }
-        }.runTaskAsynchronously(plugin);
+    private void sweep() {
+        // Sweep
+        active.forEach((uuid, sampler) -> {
+            // Sweep and update
+            if (sampler.sweep())
+                getPlugin().getDataStorage().sync(sampler.getInfo());
+            // Idle
+            if (sampler.isIdle())
+                idle.add(uuid);
+        });
+
+        // Deactivate
+        for (UUID uuid : idle)
+            active.remove(uuid);
+        idle.clear();
     }
 
     @Override
     protected ImmediateSampler createSampler(@NotNull Player player) {
-        return new ImmediateSampler(PlayerInfo.initial(player.getUniqueId()));
+        return new ImmediateSampler(PlayerInfo.initial(player.getUniqueId()), getPlugin().getClock());
+    }
+
+    @Override
+    protected void onClick(@NotNull UUID uuid, @NotNull ImmediateSampler sampler) {
+        if (sweepTask != null)
+            active.put(uuid, sampler);
+    }
+
+    @Override
+    protected void destroySampler(@NotNull ImmediateSampler sampler) {
+        active.remove(sampler.getUniqueId());
     }
 
     @Override
@@ -56,4 +98,11 @@ public class ImmediateHandler extends ClickHandler<ImmediateSampler> {
         return 1;
     }
 
+    @Override
+    public void close() {
+        super.close();
+        if (sweepTask != null)
+            sweepTask.cancel();
+    }
+
 }
\ No newline at end of file
@@ -17,44 +17,74 @@ package dev.dejvokep.clickspersecond.handler;
 
 import dev.dejvokep.clickspersecond.ClicksPerSecond;
 import dev.dejvokep.clickspersecond.handler.sampler.RatedSampler;
+import dev.dejvokep.clickspersecond.handler.sampler.RatedSamplerStore;
 import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
-
 /**
- * Implementation of {@link ClickHandler} which has rated CPS sampling.
+ * Implementation of {@link ClickHandler} which has rated CPS sampling. State of all samplers is stored in a columnar
+ * {@link RatedSamplerStore}, so resets are linear scans over primitive arrays.
+ * <p>
+ * If staggered, samplers are spread across phases of the sampling period and only one phase is reset per tick, which
+ * spreads the cost of resets (and of syncing new records) evenly, instead of doing all of it on a single tick.
  */
 public class RatedHandler extends ClickHandler<RatedSampler> {
 
     // Rate in ticks
     private final int rate;
+    // Store
+    private final RatedSamplerStore store;
+    // Reset task
+    private final BukkitTask task;
+    // Current phase
+    private int phase = 0;
 
     /**
      * Initializes the handler.
      *
-     * @param plugin the plugin
-     * @param rate   the sampling rate
+     * @param plugin    the plugin
+     * @param rate      the sampling rate
+     * @param staggered if to spread resets across all ticks of the sampling period
      */
-    public RatedHandler(@NotNull ClicksPerSecond plugin, int rate) {
-        super(plugin, new HashMap<>());
+    public RatedHandler(@NotNull ClicksPerSecond plugin, int rate, boolean staggered) {
+        super(plugin);
         this.rate = rate;
+        this.store = new RatedSamplerStore(rate, staggered ? rate : 1, plugin.getClock());
 
         // Schedule
-        Bukkit.getScheduler().runTaskTimer(plugin, () -> getSamplers().forEach((uuid, sampler) -> {
-            // Reset
-            PlayerInfo updated = sampler.reset();
-            // Update
-            if (updated != null)
-                plugin.getDataStorage().sync(updated);
-        }), rate, rate);
+        task = staggered ?
+                Bukkit.getScheduler().runTaskTimer(plugin, this::resetPhase, 1L, 1L) :
+                Bukkit.getScheduler().runTaskTimer(plugin, () -> store.reset(this::sync), rate, rate);
+    }
+
+    /**
+     * Resets samplers in the current phase and advances to the next one.
+     */
+    private void resetPhase() {
+        store.reset(phase, this::sync);
+        phase = (phase + 1) % rate;
+    }
+
+    /**
+     * Queues the given info for synchronization.
+     *
+     * @param info the info to sync
+     */
+    private void sync(@NotNull PlayerInfo info) {
+        getPlugin().getDataStorage().sync(info);
     }
 
     @Override
     protected RatedSampler createSampler(@NotNull Player player) {
-        return new RatedSampler(rate, PlayerInfo.initial(player.getUniqueId()));
+        return store.create(PlayerInfo.initial(player.getUniqueId()));
+    }
+
+    @Override
+    protected void destroySampler(@NotNull RatedSampler sampler) {
+        store.release(sampler);
     }
 
     @Override
@@ -62,4 +92,10 @@ public class RatedHandler extends ClickHandler<RatedSampler> {
         return rate;
     }
 
+    @Override
+    public void close() {
+        super.close();
+        task.cancel();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.ingest;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free, single-producer single-consumer ring buffer of click times.
+ * <p>
+ * Only one thread may {@link #offer(long) offer} clicks and only one (possibly another) thread may {@link
+ * #poll(long[]) poll} them at a time. Neither of the operations allocates.
+ * <p>
+ * The ring also carries a dirty flag, which lets the consumer visit only rings with pending clicks: after offering, the
+ * producer {@link #markDirty() marks} the ring and, if it was clean, hands it over to the consumer (e.g. through a
+ * queue); the consumer {@link #clearDirty() clears} the flag before polling.
+ */
+public class ClickRing {
+
+    /**
+     * Default capacity of the ring.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    // Buffer
+    private final long[] buffer;
+    private final int mask;
+    // Read and write sequences
+    private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+    // Clicks dropped because the ring was full (written by the producer only), of which already taken by the consumer
+    private volatile long dropped = 0;
+    private long taken = 0;
+    // If there might be pending clicks not yet handed over to the consumer
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * Initializes the ring with the {@link #DEFAULT_CAPACITY default capacity}.
+     */
+    public ClickRing() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initializes the ring with the given capacity, which must be a power of 2.
+     *
+     * @param capacity the capacity
+     */
+    public ClickRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of 2!");
+        this.buffer = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Appends a click made at the given time. If the ring is full, the click is dropped (and {@link #takeDropped()
+     * counted}) and <code>false</code> is returned.
+     * <p>
+     * <b>Must only be called by the producer thread.</b>
+     *
+     * @param time the time at which the click was made
+     * @return if the click was appended
+     */
+    public boolean offer(long time) {
+        long t = tail.get();
+        // Full
+        if (t - head.get() == buffer.length) {
+            dropped++;
+            return false;
+        }
+
+        // Write and publish
+        buffer[(int) t & mask] = time;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Moves as many pending clicks as possible (limited by size of the given array) into the given array and returns
+     * how many of them were moved.
+     * <p>
+     * <b>Must only be called by the consumer thread.</b>
+     *
+     * @param batch the array to move the clicks into
+     * @return the amount of moved clicks
+     */
+    public int poll(@NotNull long[] batch) {
+        long h = head.get();
+        // Amount to move
+        int count = (int) Math.min(tail.get() - h, batch.length);
+        // Move
+        for (int i = 0; i < count; i++)
+            batch[i] = buffer[(int) (h + i) & mask];
+
+        // Release
+        head.lazySet(h + count);
+        return count;
+    }
+
+    /**
+     * Marks the ring dirty and returns if it was clean before, in which case the ring must be handed over to the
+     * consumer. Both the flag operations are atomic swaps, so clicks offered before marking are visible to the consumer
+     * once it has cleared the flag.
+     * <p>
+     * <b>Must only be called by the producer thread, after offering.</b>
+     *
+     * @return if the ring was clean
+     */
+    public boolean markDirty() {
+        return !dirty.getAndSet(true);
+    }
+
+    /**
+     * Clears the dirty flag. Clicks offered afterwards will mark the ring dirty again.
+     * <p>
+     * <b>Must only be called by the consumer thread, before polling.</b>
+     */
+    public void clearDirty() {
+        dirty.getAndSet(false);
+    }
+
+    /**
+     * Returns the amount of clicks dropped because the ring was full since the last call. As the ring is full, it is
+     * dirty, so the drops are taken by the next drain at the latest.
+     * <p>
+     * <b>Must only be called by the consumer thread.</b>
+     *
+     * @return the amount of newly dropped clicks
+     */
+    public int takeDropped() {
+        long dropped = this.dropped;
+        int delta = (int) (dropped - taken);
+        taken = dropped;
+        return delta;
+    }
+
+}
\ No newline at end of file
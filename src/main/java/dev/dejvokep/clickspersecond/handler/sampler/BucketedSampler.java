@@ -0,0 +1,168 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.sampler;
+
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Implementation of {@link Sampler} which has sliding window CPS sampling. The last second is divided into a fixed
+ * amount of buckets, each counting clicks made during its (equally long) part of the second.
+ */
+public class BucketedSampler extends Sampler {
+
+    // Buckets
+    private final int[] buckets;
+    // Length of each bucket in nanoseconds
+    private final long length;
+    // Multiplier to convert clicks in the window to CPS
+    private final double multiplier;
+    // Absolute index of the latest bucket
+    private long latest;
+    // Clicks in the window, previous CPS
+    private int clicks = 0, previous = 0;
+
+    /**
+     * Initializes the sampler.
+     *
+     * @param buckets amount of buckets to divide the last second into, between <code>1</code> and <code>1000</code>
+     * @param info    the initial info
+     * @param clock   the clock to use
+     */
+    public BucketedSampler(int buckets, @NotNull PlayerInfo info, @NotNull Clock clock) {
+        super(info, clock);
+        this.buckets = new int[buckets];
+        this.length = 1_000_000_000L / buckets;
+        this.multiplier = 1_000_000_000D / (length * buckets);
+        this.latest = Math.floorDiv(clock.nanoTime(), length);
+    }
+
+    @Override
+    public boolean addClick(long time) {
+        // Move the window
+        advance(time);
+        // Add click
+        buckets[(int) Math.floorMod(latest, buckets.length)]++;
+        clicks++;
+
+        // Store
+        int prev = previous;
+        // Reset
+        this.previous = toCPS(clicks);
+        updatePeak(previous, time);
+
+        // If going down from peak and the peak was more than the best
+        if (previous < prev && prev > getBest()) {
+            setRecord(prev, clock.currentTimeMillis());
+            return true;
+        }
+
+        // Nothing new
+        return false;
+    }
+
+    @Override
+    public boolean close() {
+        // If the last peak was more than the best
+        if (previous > getBest()) {
+            setRecord(previous, clock.currentTimeMillis());
+            return true;
+        }
+
+        // Nothing new
+        return false;
+    }
+
+    @Override
+    public int getCPS() {
+        return toCPS(count(clock.nanoTime()));
+    }
+
+    @Override
+    public void resetCPS() {
+        Arrays.fill(buckets, 0);
+        clicks = previous = 0;
+    }
+
+    /**
+     * Moves the window, so that the latest bucket is the one the given time belongs to. Clears all buckets which are
+     * now out of the window.
+     *
+     * @param time the current monotonic time
+     */
+    private void advance(long time) {
+        // Index
+        long index = Math.floorDiv(time, length);
+        // Elapsed buckets
+        long elapsed = index - latest;
+        // Still the same bucket
+        if (elapsed <= 0)
+            return;
+
+        // Whole window elapsed
+        if (elapsed >= buckets.length) {
+            Arrays.fill(buckets, 0);
+            clicks = 0;
+        } else {
+            // Clear the elapsed buckets
+            for (long i = latest + 1; i <= index; i++) {
+                int bucket = (int) Math.floorMod(i, buckets.length);
+                clicks -= buckets[bucket];
+                buckets[bucket] = 0;
+            }
+        }
+
+        // Set
+        latest = index;
+    }
+
+    /**
+     * Returns the amount of clicks in the window as if it was moved to the given time, without moving it.
+     *
+     * @param time the current monotonic time
+     * @return the amount of clicks
+     */
+    private int count(long time) {
+        // Elapsed buckets
+        long elapsed = Math.floorDiv(time, length) - latest;
+        // Still the same bucket
+        if (elapsed <= 0)
+            return clicks;
+        // Whole window elapsed
+        if (elapsed >= buckets.length)
+            return 0;
+
+        // Subtract the elapsed buckets
+        int count = clicks;
+        for (long i = latest + 1; i <= latest + elapsed; i++)
+            count -= buckets[(int) Math.floorMod(i, buckets.length)];
+        return count;
+    }
+
+    /**
+     * Converts the given amount of clicks in the window to CPS.
+     *
+     * @param clicks the amount of clicks
+     * @return the CPS
+     */
+    private int toCPS(int clicks) {
+        return (int) Math.round(clicks * multiplier);
+    }
+
+}
\ No newline at end of file
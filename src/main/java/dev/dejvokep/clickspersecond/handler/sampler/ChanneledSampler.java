@@ -0,0 +1,316 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.sampler;
+
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Implementation of {@link Sampler} which has sliding window CPS sampling of all {@link ClickChannel channels} at once.
+ * The last second is divided into a fixed amount of buckets, like with {@link BucketedSampler}, but each bucket packs
+ * click counters of all channels into a single <code>long</code>, so moving the window clears all channels in one
+ * sweep.
+ * <p>
+ * The primary CPS (and record) are computed from clicks of all {@link ClickChannel#isPrimary() primary} channels.
+ * Records of each channel are tracked separately and included in the {@link #getInfo() info}.
+ */
+public class ChanneledSampler extends Sampler {
+
+    /**
+     * Bits of each packed counter.
+     */
+    private static final int BITS = 21;
+
+    /**
+     * Mask of a single packed counter.
+     */
+    private static final long MASK = (1L << BITS) - 1;
+
+    /**
+     * Amount of channels.
+     */
+    private static final int CHANNELS = ClickChannel.VALUES.length;
+
+    // Packed buckets
+    private final long[] buckets;
+    // Length of each bucket in nanoseconds
+    private final long length;
+    // Multiplier to convert clicks in the window to CPS
+    private final double multiplier;
+    // Absolute index of the latest bucket
+    private long latest;
+    // Packed clicks in the window
+    private long window = 0;
+    // Previous primary CPS
+    private int previous = 0;
+    // Previous CPS, best CPS and times of their achievement by channel
+    private final int[] channelPrevious = new int[CHANNELS], channelBest = new int[CHANNELS];
+    private final long[] channelTimes = new long[CHANNELS];
+
+    /**
+     * Initializes the sampler.
+     *
+     * @param buckets amount of buckets to divide the last second into, between <code>1</code> and <code>1000</code>
+     * @param info    the initial info
+     * @param clock   the clock to use
+     */
+    public ChanneledSampler(int buckets, @NotNull PlayerInfo info, @NotNull Clock clock) {
+        super(info, clock);
+        this.buckets = new long[buckets];
+        this.length = 1_000_000_000L / buckets;
+        this.multiplier = 1_000_000_000D / (length * buckets);
+        this.latest = Math.floorDiv(clock.nanoTime(), length);
+        // Channel records
+        for (ClickChannel channel : ClickChannel.VALUES) {
+            channelBest[channel.ordinal()] = info.getCPS(channel);
+            channelTimes[channel.ordinal()] = info.getTime(channel);
+        }
+    }
+
+    @Override
+    public boolean addClick(long time) {
+        return addClick(time, ClickChannel.LEFT);
+    }
+
+    @Override
+    public boolean addClick(long time, @NotNull ClickChannel channel) {
+        // Move the window
+        advance(time);
+        // Add click
+        long increment = 1L << (BITS * channel.ordinal());
+        buckets[(int) Math.floorMod(latest, buckets.length)] += increment;
+        window += increment;
+
+        // Store
+        int prev = previous;
+        // Reset
+        this.previous = toCPS(primary(window));
+        updatePeak(previous, time);
+
+        // Record
+        long now = clock.currentTimeMillis();
+        boolean updated = updateChannels(now);
+        // If going down from peak and the peak was more than the best
+        if (previous < prev && prev > getBest()) {
+            setRecord(prev, now);
+            return true;
+        }
+
+        return updated;
+    }
+
+    @Override
+    public boolean close() {
+        // Channels
+        long now = clock.currentTimeMillis();
+        boolean updated = false;
+        for (int i = 0; i < CHANNELS; i++) {
+            if (channelPrevious[i] > channelBest[i]) {
+                setChannelRecord(i, channelPrevious[i], now);
+                updated = true;
+            }
+        }
+
+        // If the last peak was more than the best
+        if (previous > getBest()) {
+            setRecord(previous, now);
+            return true;
+        }
+
+        return updated;
+    }
+
+    @Override
+    public int getCPS() {
+        return toCPS(primary(window(clock.nanoTime())));
+    }
+
+    @Override
+    public int getCPS(@NotNull ClickChannel channel) {
+        return toCPS(count(window(clock.nanoTime()), channel.ordinal()));
+    }
+
+    @Override
+    public void resetCPS() {
+        Arrays.fill(buckets, 0);
+        Arrays.fill(channelPrevious, 0);
+        window = 0;
+        previous = 0;
+    }
+
+    @Override
+    public void wipeData() {
+        super.wipeData();
+        Arrays.fill(channelBest, 0);
+        Arrays.fill(channelTimes, 0);
+        invalidate();
+    }
+
+    @Override
+    public boolean setFetchedInfo(@NotNull PlayerInfo info) {
+        // Channels
+        boolean better = false;
+        for (ClickChannel channel : ClickChannel.VALUES) {
+            int fetched = info.hasChannels() ? info.getCPS(channel) : 0;
+            if (info.hasChannels() && fetched >= channelBest[channel.ordinal()])
+                setChannelRecord(channel.ordinal(), fetched, info.getTime(channel));
+            else if (channelBest[channel.ordinal()] > fetched)
+                better = true;
+        }
+
+        // Set
+        return super.setFetchedInfo(info) || better;
+    }
+
+    @NotNull
+    @Override
+    protected PlayerInfo createInfo(@NotNull UUID uuid, int cps, long time, long fetchTime) {
+        return PlayerInfo.from(uuid, cps, time, fetchTime, channelBest, channelTimes);
+    }
+
+    /**
+     * Samples CPS of all channels and sets records of channels which are going down from a peak better than their
+     * record.
+     *
+     * @param now the current time
+     * @return if any record has changed
+     */
+    private boolean updateChannels(long now) {
+        boolean updated = false;
+        for (int i = 0; i < CHANNELS; i++) {
+            // Store
+            int prev = channelPrevious[i], current = toCPS(count(window, i));
+            // Reset
+            channelPrevious[i] = current;
+            // If going down from peak and the peak was more than the best
+            if (current < prev && prev > channelBest[i]) {
+                setChannelRecord(i, prev, now);
+                updated = true;
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Sets record of the channel with the given ordinal.
+     *
+     * @param channel the channel ordinal
+     * @param cps     the CPS
+     * @param time    time at which the CPS were achieved
+     */
+    private void setChannelRecord(int channel, int cps, long time) {
+        channelBest[channel] = cps;
+        channelTimes[channel] = time;
+        invalidate();
+    }
+
+    /**
+     * Moves the window, so that the latest bucket is the one the given time belongs to. Clears all buckets which are
+     * now out of the window, for all channels at once.
+     *
+     * @param time the current monotonic time
+     */
+    private void advance(long time) {
+        // Index
+        long index = Math.floorDiv(time, length);
+        // Elapsed buckets
+        long elapsed = index - latest;
+        // Still the same bucket
+        if (elapsed <= 0)
+            return;
+
+        // Whole window elapsed
+        if (elapsed >= buckets.length) {
+            Arrays.fill(buckets, 0);
+            window = 0;
+        } else {
+            // Clear the elapsed buckets (counters never borrow from each other, as the window holds all of them)
+            for (long i = latest + 1; i <= index; i++) {
+                int bucket = (int) Math.floorMod(i, buckets.length);
+                window -= buckets[bucket];
+                buckets[bucket] = 0;
+            }
+        }
+
+        // Set
+        latest = index;
+    }
+
+    /**
+     * Returns the packed clicks in the window as if it was moved to the given time, without moving it.
+     *
+     * @param time the current monotonic time
+     * @return the packed clicks
+     */
+    private long window(long time) {
+        // Elapsed buckets
+        long elapsed = Math.floorDiv(time, length) - latest;
+        // Still the same bucket
+        if (elapsed <= 0)
+            return window;
+        // Whole window elapsed
+        if (elapsed >= buckets.length)
+            return 0;
+
+        // Subtract the elapsed buckets
+        long window = this.window;
+        for (long i = latest + 1; i <= latest + elapsed; i++)
+            window -= buckets[(int) Math.floorMod(i, buckets.length)];
+        return window;
+    }
+
+    /**
+     * Returns the amount of clicks of the channel with the given ordinal in the given packed window.
+     *
+     * @param window  the packed clicks
+     * @param channel the channel ordinal
+     * @return the amount of clicks
+     */
+    private static int count(long window, int channel) {
+        return (int) ((window >>> (BITS * channel)) & MASK);
+    }
+
+    /**
+     * Returns the amount of clicks of all primary channels in the given packed window.
+     *
+     * @param window the packed clicks
+     * @return the amount of clicks
+     */
+    private static int primary(long window) {
+        int clicks = 0;
+        for (ClickChannel channel : ClickChannel.VALUES) {
+            if (channel.isPrimary())
+                clicks += count(window, channel.ordinal());
+        }
+        return clicks;
+    }
+
+    /**
+     * Converts the given amount of clicks in the window to CPS.
+     *
+     * @param clicks the amount of clicks
+     * @return the CPS
+     */
+    private int toCPS(int clicks) {
+        return (int) Math.round(clicks * multiplier);
+    }
+
+}
\ No newline at end of file
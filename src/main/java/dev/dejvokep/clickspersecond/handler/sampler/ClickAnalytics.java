@@ -0,0 +1,164 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.sampler;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Streaming statistics of intervals between clicks. All statistics are maintained by online algorithms (mean and
+ * variance using Welford's algorithm), so each click takes constant time and no click history is stored.
+ * <p>
+ * Intervals longer than {@link #MAX_INTERVAL} are considered pauses rather than intervals between clicks of the same
+ * burst, so they are not counted.
+ */
+public class ClickAnalytics {
+
+    /**
+     * Max interval (exclusive) in nanoseconds to count.
+     */
+    public static final long MAX_INTERVAL = 1_000_000_000L;
+
+    /**
+     * Amount of histogram bins.
+     */
+    public static final int BINS = 20;
+
+    /**
+     * Width of each histogram bin in nanoseconds. The last bin also holds all longer intervals.
+     */
+    public static final long BIN_WIDTH = 10_000_000L;
+
+    // Histogram
+    private final long[] histogram = new long[BINS];
+    // Amount of intervals
+    private long count = 0;
+    // Mean and sum of squared differences from the mean
+    private double mean = 0, squares = 0;
+    // Min and max interval
+    private long min = Long.MAX_VALUE, max = 0;
+    // Time of the last click
+    private long last;
+    private boolean clicked = false;
+
+    /**
+     * Adds click made at the given monotonic time. Clicks must be added in order.
+     *
+     * @param time the monotonic time at which the click was made
+     */
+    public void add(long time) {
+        // Interval
+        long interval = time - last;
+        boolean counted = clicked && interval >= 0 && interval < MAX_INTERVAL;
+        // Set
+        last = time;
+        clicked = true;
+        // Pause
+        if (!counted)
+            return;
+
+        // Mean and variance
+        double delta = interval - mean;
+        mean += delta / ++count;
+        squares += delta * (interval - mean);
+        // Bounds
+        min = Math.min(min, interval);
+        max = Math.max(max, interval);
+        // Histogram
+        histogram[(int) Math.min(interval / BIN_WIDTH, BINS - 1)]++;
+    }
+
+    /**
+     * Resets all statistics.
+     */
+    public void reset() {
+        Arrays.fill(histogram, 0);
+        count = 0;
+        mean = squares = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+        clicked = false;
+    }
+
+    /**
+     * Returns the amount of intervals counted.
+     *
+     * @return the amount of intervals
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean interval in milliseconds, or <code>0</code> if there are no intervals.
+     *
+     * @return the mean interval
+     */
+    public double getMean() {
+        return mean / 1_000_000D;
+    }
+
+    /**
+     * Returns the (population) variance of the intervals in milliseconds squared, or <code>0</code> if there are no
+     * intervals.
+     *
+     * @return the variance of the intervals
+     */
+    public double getVariance() {
+        return count == 0 ? 0 : squares / count / 1_000_000_000_000D;
+    }
+
+    /**
+     * Returns the standard deviation of the intervals in milliseconds, or <code>0</code> if there are no intervals.
+     *
+     * @return the standard deviation of the intervals
+     */
+    public double getDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Returns the shortest interval in milliseconds, or <code>0</code> if there are no intervals.
+     *
+     * @return the shortest interval
+     */
+    public double getMin() {
+        return count == 0 ? 0 : min / 1_000_000D;
+    }
+
+    /**
+     * Returns the longest interval in milliseconds, or <code>0</code> if there are no intervals.
+     *
+     * @return the longest interval
+     */
+    public double getMax() {
+        return max / 1_000_000D;
+    }
+
+    /**
+     * Returns a copy of the interval histogram. Bin <code>i</code> holds the amount of intervals in range
+     * <code>[i * </code>{@link #BIN_WIDTH}<code>, (i + 1) * </code>{@link #BIN_WIDTH}<code>)</code>; the last bin also
+     * holds all longer intervals.
+     *
+     * @return the histogram
+     */
+    @NotNull
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+}
\ No newline at end of file
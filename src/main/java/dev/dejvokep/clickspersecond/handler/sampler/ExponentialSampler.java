@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.sampler;
+
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Implementation of {@link Sampler} which has exponentially-weighted CPS sampling. Instead of storing clicks, the
+ * sampler only keeps the current rate, which decays exponentially over time and increases with each click. Clicking at
+ * a constant frequency makes the rate converge to that frequency.
+ */
+public class ExponentialSampler extends Sampler {
+
+    // Time constant in nanoseconds
+    private final double timeConstant;
+    // Increase of the rate per click
+    private final double increment;
+    // Rate at the last update
+    private double rate = 0;
+    // Monotonic time of the last update
+    private long updated;
+    // Previous CPS
+    private int previous = 0;
+
+    /**
+     * Initializes the sampler.
+     *
+     * @param timeConstant time constant of the decay in milliseconds (the higher, the smoother, but slower to react)
+     * @param info         the initial info
+     * @param clock        the clock to use
+     */
+    public ExponentialSampler(int timeConstant, @NotNull PlayerInfo info, @NotNull Clock clock) {
+        super(info, clock);
+        this.timeConstant = timeConstant * 1_000_000D;
+        this.increment = 1000D / timeConstant;
+        this.updated = clock.nanoTime();
+    }
+
+    @Override
+    public boolean addClick(long time) {
+        // Decay
+        double decayed = decay(time);
+        // Add click
+        rate = decayed + increment;
+        // Clicks might be drained after the time was read
+        updated = Math.max(updated, time);
+
+        // Store
+        int prev = previous;
+        // Reset (the rate jumps by the increment with each click, use the midpoint to not overestimate)
+        this.previous = (int) Math.round(decayed + increment / 2);
+        updatePeak(previous, time);
+
+        // If going down from peak and the peak was more than the best
+        if (previous < prev && prev > getBest()) {
+            setRecord(prev, clock.currentTimeMillis());
+            return true;
+        }
+
+        // Nothing new
+        return false;
+    }
+
+    @Override
+    public boolean close() {
+        // If the last peak was more than the best
+        if (previous > getBest()) {
+            setRecord(previous, clock.currentTimeMillis());
+            return true;
+        }
+
+        // Nothing new
+        return false;
+    }
+
+    @Override
+    public int getCPS() {
+        return (int) Math.round(decay(clock.nanoTime()));
+    }
+
+    @Override
+    public void resetCPS() {
+        rate = 0;
+        previous = 0;
+    }
+
+    /**
+     * Returns the rate decayed to the given time. Does not modify the stored rate.
+     *
+     * @param time the current monotonic time
+     * @return the decayed rate
+     */
+    private double decay(long time) {
+        long elapsed = time - updated;
+        return elapsed <= 0 ? rate : rate * Math.exp(-elapsed / timeConstant);
+    }
+
+}
\ No newline at end of file
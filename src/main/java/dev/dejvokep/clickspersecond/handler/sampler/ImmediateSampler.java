@@ -15,77 +15,163 @@
  */
 package dev.dejvokep.clickspersecond.handler.sampler;
 
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
 import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
-
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 /**
- * Implementation of {@link Sampler} which has instant CPS sampling with queues.
+ * Implementation of {@link Sampler} which has instant CPS sampling with a fixed-capacity ring buffer of click times.
  */
 public class ImmediateSampler extends Sampler {
 
-    // Click queue (by time)
-    private final Queue<Long> queue = new LinkedBlockingQueue<>();
+    /**
+     * Capacity of the click window (must be a power of 2). If exceeded, the oldest clicks are overwritten, so the
+     * sampled CPS saturate at this value.
+     */
+    public static final int CAPACITY = 128;
+
+    /**
+     * Mask used to wrap indexes around the ring buffer.
+     */
+    private static final int MASK = CAPACITY - 1;
+
+    /**
+     * Length of the click window in nanoseconds.
+     */
+    private static final long WINDOW = 1_000_000_000L;
+
+    // Click ring buffer (by monotonic time)
+    private final long[] clicks = new long[CAPACITY];
+    // Indexes of the oldest click and of the next write, size of the window
+    private int head = 0, tail = 0, size = 0;
     // Previous CPS
     private int previous = 0;
 
     /**
      * Initializes the sampler with the given initial info.
      *
-     * @param info the initial info
+     * @param info  the initial info
+     * @param clock the clock to use
      */
-    public ImmediateSampler(@NotNull PlayerInfo info) {
-        super(info);
+    public ImmediateSampler(@NotNull PlayerInfo info, @NotNull Clock clock) {
+        super(info, clock);
     }
 
     @Override
-    @Nullable
-    public PlayerInfo addClick() {
-        // Time
-        long time = System.currentTimeMillis();
+    public boolean addClick(long time) {
+        // Remove outdated
+        clear(time);
+        // Saturated
+        if (size == CAPACITY) {
+            head = (head + 1) & MASK;
+            size--;
+        }
         // Add click
-        queue.add(time);
+        clicks[tail] = time;
+        tail = (tail + 1) & MASK;
+        size++;
 
         // Store
         int prev = previous;
         // Reset
-        this.previous = queue.size();
+        this.previous = size;
+        updatePeak(size, time);
 
         // If going down from peak and the peak was more than the best
-        if (queue.size() < prev && prev > info.getCPS())
-            return setInfo(info.setCPS(prev, time));
+        if (size < prev && prev > getBest()) {
+            setRecord(prev, clock.currentTimeMillis());
+            return true;
+        }
 
         // Nothing new
-        return null;
+        return false;
     }
 
     @Override
-    @Nullable
-    public PlayerInfo close() {
-        return previous > info.getCPS() ? info.setCPS(previous, System.currentTimeMillis()) : null;
+    public boolean close() {
+        // If the last peak was more than the best
+        if (previous > getBest()) {
+            setRecord(previous, clock.currentTimeMillis());
+            return true;
+        }
+
+        // Nothing new
+        return false;
     }
 
     @Override
     public int getCPS() {
-        return queue.size();
+        // Count up-to-date (without removing the outdated)
+        long time = clock.nanoTime();
+        int count = 0;
+        while (count < size && time - clicks[(tail - count - 1) & MASK] <= WINDOW)
+            count++;
+        return count;
     }
 
     @Override
     public void resetCPS() {
-        queue.clear();
+        head = tail = size = 0;
         previous = 0;
     }
 
     /**
-     * Removes outdated clicks (older than 1 second) from the click queue.
+     * Removes outdated clicks (older than 1 second) from the click window.
      */
     public void clear() {
-        long time = System.currentTimeMillis() - 1000;
-        while (queue.size() > 0 && queue.peek() < time)
-            queue.poll();
+        clear(clock.nanoTime());
+    }
+
+    /**
+     * Removes outdated clicks (older than 1 second) from the click window. If the window has drained completely, the
+     * peak reached before is finished; if it was more than the best, it is set as the record and <code>true</code> is
+     * returned, in which case the {@link #getInfo() info} should be uploaded to the data storage.
+     * <p>
+     * Afterwards, the sampler is {@link #isIdle() idle} if the window has drained.
+     *
+     * @return if the record has changed
+     */
+    public boolean sweep() {
+        // Remove outdated
+        clear(clock.nanoTime());
+        // Still clicking
+        if (size > 0)
+            return false;
+
+        // Store
+        int prev = previous;
+        // Reset
+        this.previous = 0;
+
+        // If the peak was more than the best
+        if (prev > getBest()) {
+            setRecord(prev, clock.currentTimeMillis());
+            return true;
+        }
+
+        // Nothing new
+        return false;
+    }
+
+    /**
+     * Returns if the sampler is idle - both the click window and the previous CPS have drained to zero.
+     *
+     * @return if the sampler is idle
+     */
+    public boolean isIdle() {
+        return size == 0 && previous == 0;
+    }
+
+    /**
+     * Removes clicks which are outdated (older than 1 second) relative to the given time from the click window.
+     *
+     * @param time the current monotonic time
+     */
+    private void clear(long time) {
+        while (size > 0 && time - clicks[head] > WINDOW) {
+            head = (head + 1) & MASK;
+            size--;
+        }
     }
 
 }
\ No newline at end of file
@@ -15,83 +15,96 @@
  */
 package dev.dejvokep.clickspersecond.handler.sampler;
 
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
 import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 /**
- * Implementation of {@link Sampler} which has rated CPS sampling.
+ * Implementation of {@link Sampler} which has rated CPS sampling. The sampler is only a view over its slot in the
+ * {@link RatedSamplerStore}, which holds all the state.
  */
 public class RatedSampler extends Sampler {
 
-    // Clicks
-    private int clicks = 0, cps = 0, previous = 0;
-    // Rate in seconds
-    private final double rate;
+    // Store
+    private final RatedSamplerStore store;
+    // Slot
+    private final int slot;
 
     /**
-     * Initializes the sampler.
+     * Initializes the sampler. Samplers are created by {@link RatedSamplerStore#create(PlayerInfo)}.
      *
-     * @param tickRate sampling rate (length of each sampling period) in ticks
-     * @param info     the initial info
+     * @param store the store
+     * @param slot  the slot in the store
+     * @param info  the initial info
+     * @param clock the clock to use
      */
-    public RatedSampler(int tickRate, @NotNull PlayerInfo info) {
-        super(info);
-        rate = (double) tickRate / 20;
+    RatedSampler(@NotNull RatedSamplerStore store, int slot, @NotNull PlayerInfo info, @NotNull Clock clock) {
+        super(info, clock);
+        this.store = store;
+        this.slot = slot;
     }
 
     @Override
-    @Nullable
-    public PlayerInfo addClick() {
+    public boolean addClick(long time) {
         // Add click
-        clicks++;
+        store.click(slot);
         // Nothing new
-        return null;
+        return false;
     }
 
     @Override
-    @Nullable
-    public PlayerInfo close() {
-        return previous > info.getCPS() ? info.setCPS(previous, System.currentTimeMillis()) : null;
+    public boolean close() {
+        // If the last period was more than the best
+        int previous = store.previous[slot];
+        if (previous > getBest()) {
+            setRecord(previous, clock.currentTimeMillis());
+            return true;
+        }
+
+        // Nothing new
+        return false;
     }
 
     @Override
     public int getCPS() {
-        return cps;
+        return store.cps[slot];
     }
 
     @Override
     public void resetCPS() {
-        clicks = cps = previous = 0;
+        store.clear(slot);
+    }
+
+    @Override
+    protected int getBest() {
+        return store.best[slot];
+    }
+
+    @Override
+    protected void setRecord(int cps, long time) {
+        store.best[slot] = cps;
+        super.setRecord(cps, time);
     }
 
     /**
      * Resets the sampler to new sampling period.
      * <p>
-     * If current CPS are lower than the previous, but higher than the record, {@link #setInfo(PlayerInfo) sets} and
-     * returns the new info, which should be uploaded to the data storage. If there are no updates, returns
-     * <code>null</code>.
+     * If current CPS are lower than the previous, but higher than the record, sets the previous CPS as the new record
+     * and returns <code>true</code>, in which case the {@link #getInfo() info} should be uploaded to the data storage.
      *
-     * @return the information to upload, if any
+     * @return if the record has changed
      */
-    @Nullable
-    public PlayerInfo reset() {
-        // Store
-        int prev = previous;
-
-        // CPS
-        cps = (int) Math.round(clicks / rate);
-        // Reset
-        clicks = 0;
-        this.previous = cps;
-
-
-        // If going down from peak and the peak was more than the best
-        if (cps < prev && prev > info.getCPS())
-            return setInfo(info.setCPS(prev, System.currentTimeMillis()));
+    public boolean reset() {
+        return store.reset(slot, clock.currentTimeMillis(), clock.nanoTime());
+    }
 
-        // Nothing new
-        return null;
+    /**
+     * Returns the slot of this sampler in the store.
+     *
+     * @return the slot
+     */
+    public int getSlot() {
+        return slot;
     }
 
 }
\ No newline at end of file
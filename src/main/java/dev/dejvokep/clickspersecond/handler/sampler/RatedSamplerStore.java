@@ -0,0 +1,214 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.sampler;
+
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import dev.dejvokep.clickspersecond.utils.container.DenseIntSet;
+import dev.dejvokep.clickspersecond.utils.container.SlotAllocator;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Columnar store of {@link RatedSampler} state. Each sampler is assigned a dense slot, and its state is stored in
+ * parallel primitive arrays at that slot; the samplers themselves are only views over their slots. Slots are recycled
+ * once samplers are {@link #release(RatedSampler) released}.
+ * <p>
+ * Slots are assigned to phases by their index, so slot <code>i</code> is in phase <code>i % phases</code>. Only slots
+ * of active samplers (which have clicked and whose CPS have not yet dropped back to zero) are tracked per phase, so
+ * resets only touch samplers of players who are actually clicking.
+ */
+public class RatedSamplerStore {
+
+    /**
+     * Initial capacity of the arrays.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Slots
+    private final SlotAllocator slots = new SlotAllocator();
+    // Rate in seconds
+    private final double rate;
+    // Active slots by phase
+    private final DenseIntSet[] active;
+    // Clock
+    private final Clock clock;
+
+    // Views
+    private RatedSampler[] samplers = new RatedSampler[INITIAL_CAPACITY];
+    // Columns
+    int[] clicks = new int[INITIAL_CAPACITY], cps = new int[INITIAL_CAPACITY], previous = new int[INITIAL_CAPACITY], best = new int[INITIAL_CAPACITY];
+
+    /**
+     * Initializes the store.
+     *
+     * @param tickRate sampling rate (length of each sampling period) in ticks
+     * @param phases   the amount of phases to spread the slots across
+     * @param clock    the clock to use
+     */
+    public RatedSamplerStore(int tickRate, int phases, @NotNull Clock clock) {
+        this.rate = (double) tickRate / 20;
+        this.clock = clock;
+        this.active = new DenseIntSet[phases];
+        for (int phase = 0; phase < phases; phase++)
+            active[phase] = new DenseIntSet();
+    }
+
+    /**
+     * Allocates a slot and creates a sampler viewing it.
+     *
+     * @param info the initial info
+     * @return the created sampler
+     */
+    @NotNull
+    public RatedSampler create(@NotNull PlayerInfo info) {
+        // Allocate
+        int slot = slots.allocate();
+        // Grow
+        if (slot == samplers.length)
+            grow(samplers.length * 2);
+
+        // Initialize
+        RatedSampler sampler = new RatedSampler(this, slot, info, clock);
+        samplers[slot] = sampler;
+        clear(slot);
+        best[slot] = info.getCPS();
+        return sampler;
+    }
+
+    /**
+     * Releases slot of the given sampler. The sampler must not be used afterwards.
+     *
+     * @param sampler the sampler to release
+     */
+    public void release(@NotNull RatedSampler sampler) {
+        active[sampler.getSlot() % active.length].remove(sampler.getSlot());
+        samplers[sampler.getSlot()] = null;
+        slots.release(sampler.getSlot());
+    }
+
+    /**
+     * Resets all samplers to new sampling period. All new information, which should be uploaded to the data storage,
+     * is passed to the given consumer.
+     *
+     * @param consumer consumer of the information to upload
+     * @see #reset(int, Consumer)
+     */
+    public void reset(@NotNull Consumer<PlayerInfo> consumer) {
+        for (int phase = 0; phase < active.length; phase++)
+            reset(phase, consumer);
+    }
+
+    /**
+     * Resets active samplers in the given phase to new sampling period. All new information, which should be uploaded
+     * to the data storage, is passed to the given consumer. Samplers whose CPS have dropped to zero are deactivated.
+     * <p>
+     * Calling this method once per tick with a phase cycling through all phases spreads the resets evenly across the
+     * ticks, while each sampler is still reset exactly once every <code>phases</code> ticks.
+     *
+     * @param phase    the phase to reset, in range <code>[0, phases)</code>
+     * @param consumer consumer of the information to upload
+     * @see #reset(int, long, long)
+     */
+    public void reset(int phase, @NotNull Consumer<PlayerInfo> consumer) {
+        // Time
+        long now = clock.currentTimeMillis(), time = clock.nanoTime();
+        // Active slots
+        DenseIntSet active = this.active[phase];
+        // Scan backwards (deactivation moves the last slot)
+        for (int i = active.size() - 1; i >= 0; i--) {
+            int slot = active.get(i);
+
+            // Reset and update
+            if (reset(slot, now, time))
+                consumer.accept(samplers[slot].getInfo());
+            // Idle
+            if (previous[slot] == 0)
+                active.remove(slot);
+        }
+    }
+
+    /**
+     * Resets the sampler at the given slot to new sampling period.
+     * <p>
+     * If current CPS are lower than the previous, but higher than the record, sets the previous CPS as the new record
+     * and returns <code>true</code>, in which case the {@link Sampler#getInfo() info} should be uploaded to the data
+     * storage.
+     *
+     * @param slot the slot
+     * @param now  the current time
+     * @param time the current monotonic time
+     * @return if the record has changed
+     */
+    boolean reset(int slot, long now, long time) {
+        // Sampler
+        RatedSampler sampler = samplers[slot];
+        // Store
+        int prev = previous[slot];
+
+        // CPS
+        int current = cps[slot] = (int) Math.round(clicks[slot] / rate);
+        // Reset
+        clicks[slot] = 0;
+        previous[slot] = current;
+        sampler.updatePeak(current, time);
+
+        // If going down from peak and the peak was more than the best
+        if (current < prev && prev > best[slot]) {
+            sampler.setRecord(prev, now);
+            return true;
+        }
+
+        // Nothing new
+        return false;
+    }
+
+    /**
+     * Clears all CPS counters at the given slot.
+     *
+     * @param slot the slot
+     */
+    void clear(int slot) {
+        clicks[slot] = cps[slot] = previous[slot] = 0;
+        active[slot % active.length].remove(slot);
+    }
+
+    /**
+     * Adds a click to the sampler at the given slot, activating the slot if needed.
+     *
+     * @param slot the slot
+     */
+    void click(int slot) {
+        if (clicks[slot]++ == 0)
+            active[slot % active.length].add(slot);
+    }
+
+    /**
+     * Grows all arrays to the given capacity.
+     *
+     * @param capacity the new capacity
+     */
+    private void grow(int capacity) {
+        samplers = Arrays.copyOf(samplers, capacity);
+        clicks = Arrays.copyOf(clicks, capacity);
+        cps = Arrays.copyOf(cps, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        best = Arrays.copyOf(best, capacity);
+    }
+
+}
\ No newline at end of file
@@ -15,90 +15,276 @@
  */
 package dev.dejvokep.clickspersecond.handler.sampler;
 
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import dev.dejvokep.clickspersecond.utils.container.SlidingMaximum;
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
 import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.UUID;
+
 /**
  * An abstract sampler class used to manage and sample player CPS.
+ * <p>
+ * The record (best CPS and time at which they were achieved) is tracked in primitive fields, so breaking it does not
+ * allocate. An immutable {@link PlayerInfo} snapshot is only created (and cached until the record changes again) when
+ * {@link #getInfo() requested}, e.g. to sync it to the data storage or display it.
  */
 public abstract class Sampler {
 
-    // Cached info
-    protected PlayerInfo info;
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // Owner ID
+    private final UUID uuid;
+    // Best CPS
+    private int best;
+    // Time at which the best CPS were achieved, monotonic time at which the info was fetched
+    private long time, fetchTime;
+    // Snapshot of the info (null if outdated)
+    private PlayerInfo snapshot;
+    // Clock
+    protected final Clock clock;
+    // Peak tracker
+    private SlidingMaximum peak;
+    // Click analytics
+    private ClickAnalytics analytics;
 
     /**
      * Initializes the sampler with the given initial info.
      *
-     * @param info the initial info
+     * @param info  the initial info
+     * @param clock the clock to use
      */
-    public Sampler(@NotNull PlayerInfo info) {
-        this.info = info;
+    public Sampler(@NotNull PlayerInfo info, @NotNull Clock clock) {
+        this.uuid = info.getUniqueId();
+        this.best = info.getCPS();
+        this.time = info.getTime();
+        this.fetchTime = info.getFetchTime();
+        this.snapshot = info;
+        this.clock = clock;
     }
 
     /**
      * Resets the {@link #getInfo() cached info} and all CPS counters.
      */
     public void wipeData() {
-        info = PlayerInfo.empty(info.getUniqueId());
+        fetchTime = clock.nanoTime();
+        setRecord(0, 0);
         resetCPS();
+        if (peak != null)
+            peak.clear();
+        if (analytics != null)
+            analytics.reset();
     }
 
     /**
-     * Adds click to the sampler and returns new information needed to upload to the data storage, if any.
+     * Enables tracking of the {@link #getPeak() peak CPS} over the given window.
      *
-     * @return the information to upload, if any
+     * @param window the window length in seconds, must be at least <code>1</code>
      */
-    @Nullable
-    public abstract PlayerInfo addClick();
+    public void trackPeak(int window) {
+        this.peak = new SlidingMaximum(window);
+    }
 
     /**
-     * Closes the sampler and returns new information needed to upload to the data storage, if any.
+     * Enables {@link #getAnalytics() click analytics}.
+     */
+    public void enableAnalytics() {
+        this.analytics = new ClickAnalytics();
+    }
+
+    /**
+     * Returns the click analytics, or <code>null</code> if not enabled. The analytics are fed by the
+     * {@link dev.dejvokep.clickspersecond.handler.ClickHandler handler} as clicks are drained.
      *
-     * @return the information to upload, if any
+     * @return the click analytics, if enabled
      */
     @Nullable
-    public abstract PlayerInfo close();
+    public ClickAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    /**
+     * Adds click made now to the sampler and returns if the record has changed, in which case the {@link #getInfo()
+     * info} should be uploaded to the data storage.
+     *
+     * @return if the record has changed
+     * @see #addClick(long)
+     */
+    public boolean addClick() {
+        return addClick(clock.nanoTime());
+    }
+
+    /**
+     * Adds click made at the given monotonic time (see {@link Clock#nanoTime()}) to the sampler and returns if the
+     * record has changed, in which case the {@link #getInfo() info} should be uploaded to the data storage.
+     *
+     * @param time the monotonic time at which the click was made
+     * @return if the record has changed
+     */
+    public abstract boolean addClick(long time);
 
     /**
-     * Returns non-negative sampled CPS.
+     * Adds click of the given channel made at the given monotonic time (see {@link Clock#nanoTime()}) to the sampler
+     * and returns if the record has changed, in which case the {@link #getInfo() info} should be uploaded to the data
+     * storage.
+     * <p>
+     * Unless overridden by a multi-channel sampler, clicks of {@link ClickChannel#isPrimary() primary} channels are
+     * {@link #addClick(long) added} and all others are ignored.
+     *
+     * @param time    the monotonic time at which the click was made
+     * @param channel the channel of the click
+     * @return if the record has changed
+     */
+    public boolean addClick(long time, @NotNull ClickChannel channel) {
+        return channel.isPrimary() && addClick(time);
+    }
+
+    /**
+     * Closes the sampler and returns if the record has changed, in which case the {@link #getInfo() info} should be
+     * uploaded to the data storage.
+     *
+     * @return if the record has changed
+     */
+    public abstract boolean close();
+
+    /**
+     * Returns non-negative sampled CPS. Must not modify the sampler, as it might be called from any thread.
      *
      * @return the sampled CPS
      */
     public abstract int getCPS();
 
+    /**
+     * Returns non-negative sampled CPS of the given channel, or <code>-1</code> if this sampler does not track channels
+     * separately. Must not modify the sampler, as it might be called from any thread.
+     *
+     * @param channel the channel
+     * @return the sampled CPS of the channel
+     */
+    public int getCPS(@NotNull ClickChannel channel) {
+        return -1;
+    }
+
+    /**
+     * Returns the best CPS sampled during the {@link #trackPeak(int) peak window}, or <code>-1</code> if the peak is not
+     * tracked.
+     *
+     * @return the peak CPS
+     */
+    public int getPeak() {
+        return peak == null ? -1 : peak.get(Math.floorDiv(clock.nanoTime(), NANOS_PER_SECOND));
+    }
+
+    /**
+     * Updates the peak with the given CPS sampled at the given monotonic time. Implementations should call this
+     * whenever they sample new CPS.
+     *
+     * @param cps  the sampled CPS
+     * @param time the monotonic time
+     */
+    protected void updatePeak(int cps, long time) {
+        if (peak != null)
+            peak.add(Math.floorDiv(time, NANOS_PER_SECOND), cps);
+    }
+
     /**
      * Resets currently sampled CPS.
      */
     protected abstract void resetCPS();
 
     /**
-     * Sets the given info for the sampler and returns it.
+     * Returns the best CPS.
      *
-     * @param info the info to set
-     * @return the given info
+     * @return the best CPS
      */
-    @Nullable
-    public PlayerInfo setInfo(@NotNull PlayerInfo info) {
-        return this.info = info;
+    protected int getBest() {
+        return best;
+    }
+
+    /**
+     * Sets the record to the given CPS achieved at the given time. Does not allocate.
+     *
+     * @param cps  the CPS
+     * @param time time at which the CPS were achieved
+     */
+    protected void setRecord(int cps, long time) {
+        this.best = cps;
+        this.time = time;
+        invalidate();
+    }
+
+    /**
+     * Invalidates the cached {@link #getInfo() info} snapshot. Implementations which track additional data in the
+     * snapshot should call this whenever the data changes.
+     */
+    protected void invalidate() {
+        this.snapshot = null;
+    }
+
+    /**
+     * Creates an info snapshot with the given data. Implementations which track additional data in the snapshot should
+     * override this method.
+     *
+     * @param uuid      owner ID
+     * @param cps       the best CPS
+     * @param time      time at which the CPS were achieved
+     * @param fetchTime monotonic time at which the info was fetched
+     * @return the created snapshot
+     */
+    @NotNull
+    protected PlayerInfo createInfo(@NotNull UUID uuid, int cps, long time, long fetchTime) {
+        return PlayerInfo.from(uuid, cps, time, fetchTime);
     }
 
     /**
      * Sets the given fetched info to the sampler. Runs CPS comparisons to not overwrite better CPS results.
+     * <p>
+     * Returns if the sampler holds a better record than the fetched one (e.g. one achieved while the info was still
+     * loading), in which case the {@link #getInfo() info} should be uploaded to the data storage.
      *
      * @param info the fetched info
+     * @return if the local record is better than the fetched one
      */
-    public void setFetchedInfo(@NotNull PlayerInfo info) {
-        this.info = this.info.setAll(Math.max(this.info.getCPS(), info.getCPS()), info.getCPS() >= this.info.getCPS() ? info.getTime() : this.info.getTime(), info.getFetchTime());
+    public boolean setFetchedInfo(@NotNull PlayerInfo info) {
+        fetchTime = info.getFetchTime();
+        // Fetched is better
+        if (info.getCPS() >= best) {
+            setRecord(info.getCPS(), info.getTime());
+            return false;
+        }
+
+        // Local is better
+        invalidate();
+        return true;
     }
 
     /**
-     * Returns the cached info with the latest data.
+     * Returns snapshot of the info with the latest data. The snapshot is cached until the info changes.
+     * <p>
+     * While the info is loading, the initial info is returned until a record is achieved; from then on, the snapshot
+     * carries the record (so it can be synced before the fetch completes).
      *
-     * @return the cached info
+     * @return the info
      */
     @NotNull
     public PlayerInfo getInfo() {
-        return info;
+        if (snapshot == null)
+            snapshot = createInfo(uuid, best, time, fetchTime);
+        return snapshot;
+    }
+
+    /**
+     * Returns the ID of the owner.
+     *
+     * @return the ID of the owner
+     */
+    @NotNull
+    public UUID getUniqueId() {
+        return uuid;
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.strategy;
+
+import dev.dejvokep.boostedyaml.YamlDocument;
+import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.handler.BucketedHandler;
+import dev.dejvokep.clickspersecond.handler.ChanneledHandler;
+import dev.dejvokep.clickspersecond.handler.ClickHandler;
+import dev.dejvokep.clickspersecond.handler.ExponentialHandler;
+import dev.dejvokep.clickspersecond.handler.ImmediateHandler;
+import dev.dejvokep.clickspersecond.handler.RatedHandler;
+import dev.dejvokep.clickspersecond.handler.sampler.BucketedSampler;
+import dev.dejvokep.clickspersecond.handler.sampler.ChanneledSampler;
+import dev.dejvokep.clickspersecond.handler.sampler.ExponentialSampler;
+import dev.dejvokep.clickspersecond.handler.sampler.ImmediateSampler;
+import dev.dejvokep.clickspersecond.handler.sampler.RatedSampler;
+import dev.dejvokep.clickspersecond.handler.sampler.RatedSamplerStore;
+import dev.dejvokep.clickspersecond.handler.sampler.Sampler;
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sampling strategies bundled with the plugin. Handlers read their options from the configuration, fixtures use the
+ * default values of those options.
+ */
+public enum BuiltinStrategy implements SamplingStrategy {
+
+    /**
+     * Immediate or rated sampling, depending on the configured sampling rate.
+     */
+    STANDARD {
+        @NotNull
+        @Override
+        public ClickHandler<? extends Sampler> createHandler(@NotNull ClicksPerSecond plugin) {
+            return getSamplingRate(plugin.getConfiguration()) == 0 ? IMMEDIATE.createHandler(plugin) : RATED.createHandler(plugin);
+        }
+
+        @NotNull
+        @Override
+        public SamplerFixture createFixture(@NotNull Clock clock) {
+            return RATED.createFixture(clock);
+        }
+    },
+
+    /**
+     * Immediate sampling with a ring buffer of click times.
+     */
+    IMMEDIATE {
+        @NotNull
+        @Override
+        public ClickHandler<? extends Sampler> createHandler(@NotNull ClicksPerSecond plugin) {
+            return new ImmediateHandler(plugin, Math.max(plugin.getConfiguration().getInt("sweep-rate"), 0));
+        }
+
+        @NotNull
+        @Override
+        public SamplerFixture createFixture(@NotNull Clock clock) {
+            return info -> new ImmediateSampler(info, clock);
+        }
+    },
+
+    /**
+     * Rated sampling, which divides time into equally long periods.
+     */
+    RATED {
+        @NotNull
+        @Override
+        public ClickHandler<? extends Sampler> createHandler(@NotNull ClicksPerSecond plugin) {
+            // Immediate sampling has its own strategy
+            int rate = Math.max(getSamplingRate(plugin.getConfiguration()), 1);
+            return new RatedHandler(plugin, rate, plugin.getConfiguration().getBoolean("staggered-sampling"));
+        }
+
+        @NotNull
+        @Override
+        public SamplerFixture createFixture(@NotNull Clock clock) {
+            RatedSamplerStore store = new RatedSamplerStore(DEFAULT_SAMPLING_RATE, 1, clock);
+            return new SamplerFixture() {
+                // Ticks since the last reset, if any record has changed
+                private int ticks = 0;
+                private boolean updated;
+
+                @NotNull
+                @Override
+                public Sampler create(@NotNull PlayerInfo info) {
+                    return store.create(info);
+                }
+
+                @Override
+                public boolean tick() {
+                    // Not yet
+                    if (++ticks < DEFAULT_SAMPLING_RATE)
+                        return false;
+
+                    // Reset
+                    ticks = 0;
+                    updated = false;
+                    store.reset(info -> updated = true);
+                    return updated;
+                }
+
+                @Override
+                public void release(@NotNull Sampler sampler) {
+                    store.release((RatedSampler) sampler);
+                }
+            };
+        }
+    },
+
+    /**
+     * Sliding window sampling with buckets.
+     */
+    BUCKETED {
+        @NotNull
+        @Override
+        public ClickHandler<? extends Sampler> createHandler(@NotNull ClicksPerSecond plugin) {
+            return new BucketedHandler(plugin, Math.min(Math.max(plugin.getConfiguration().getInt("sampling-buckets"), 1), 1000));
+        }
+
+        @NotNull
+        @Override
+        public SamplerFixture createFixture(@NotNull Clock clock) {
+            return info -> new BucketedSampler(DEFAULT_BUCKETS, info, clock);
+        }
+    },
+
+    /**
+     * Exponentially-weighted sampling.
+     */
+    EXPONENTIAL {
+        @NotNull
+        @Override
+        public ClickHandler<? extends Sampler> createHandler(@NotNull ClicksPerSecond plugin) {
+            return new ExponentialHandler(plugin, Math.max(plugin.getConfiguration().getInt("sampling-time-constant"), 1));
+        }
+
+        @NotNull
+        @Override
+        public SamplerFixture createFixture(@NotNull Clock clock) {
+            return info -> new ExponentialSampler(DEFAULT_TIME_CONSTANT, info, clock);
+        }
+    },
+
+    /**
+     * Sliding window sampling with buckets of all click channels (left, right and entity clicks) at once.
+     */
+    CHANNELED {
+        @NotNull
+        @Override
+        public ClickHandler<? extends Sampler> createHandler(@NotNull ClicksPerSecond plugin) {
+            return new ChanneledHandler(plugin, Math.min(Math.max(plugin.getConfiguration().getInt("sampling-buckets"), 1), 1000));
+        }
+
+        @NotNull
+        @Override
+        public SamplerFixture createFixture(@NotNull Clock clock) {
+            return info -> new ChanneledSampler(DEFAULT_BUCKETS, info, clock);
+        }
+    };
+
+    /**
+     * Default sampling rate in ticks, used by fixtures.
+     */
+    private static final int DEFAULT_SAMPLING_RATE = 20;
+
+    /**
+     * Default amount of buckets, used by fixtures.
+     */
+    private static final int DEFAULT_BUCKETS = 20;
+
+    /**
+     * Default time constant in milliseconds, used by fixtures.
+     */
+    private static final int DEFAULT_TIME_CONSTANT = 1000;
+
+    /**
+     * Returns the configured sampling rate in ticks.
+     *
+     * @param config the configuration
+     * @return the sampling rate
+     */
+    private static int getSamplingRate(@NotNull YamlDocument config) {
+        return Math.max(config.getInt("sampling-rate"), 0);
+    }
+
+}
\ No newline at end of file
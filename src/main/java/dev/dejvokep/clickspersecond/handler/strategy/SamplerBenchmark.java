@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.strategy;
+
+import dev.dejvokep.clickspersecond.handler.sampler.Sampler;
+import dev.dejvokep.clickspersecond.utils.clock.ManualClock;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Benchmark kit for {@link SamplingStrategy sampling strategies}. Measures the cost of a click, including the
+ * amortized cost of the {@link SamplerFixture#tick() periodic work} done by the fixture.
+ * <p>
+ * Clicks are spread round-robin across the samplers, with the {@link ManualClock clock} advancing by a millisecond
+ * per click. Each measurement is preceded by an identical warmup run.
+ */
+public class SamplerBenchmark {
+
+    /**
+     * Nanoseconds in a millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    // Sink to prevent the work from being optimized away
+    private static volatile int sink;
+
+    /**
+     * Measures the average cost of a click in nanoseconds.
+     *
+     * @param strategy the strategy to measure
+     * @param samplers amount of samplers to spread the clicks across, must be at least <code>1</code>
+     * @param clicks   amount of clicks to measure, must be at least <code>1</code>
+     * @return the average cost of a click in nanoseconds
+     * @throws IllegalArgumentException if the strategy does not {@link SamplingStrategy#createFixture provide} a
+     *                                  fixture
+     */
+    public static double measure(@NotNull SamplingStrategy strategy, int samplers, int clicks) {
+        // Warmup
+        run(strategy, samplers, clicks);
+        // Measure
+        return (double) run(strategy, samplers, clicks) / clicks;
+    }
+
+    /**
+     * Runs the benchmark and returns the elapsed time in nanoseconds.
+     *
+     * @param strategy the strategy
+     * @param samplers amount of samplers
+     * @param clicks   amount of clicks
+     * @return the elapsed time
+     */
+    private static long run(@NotNull SamplingStrategy strategy, int samplers, int clicks) {
+        // Fixture
+        ManualClock clock = new ManualClock(0, 1_000_000L);
+        SamplerFixture fixture = strategy.createFixture(clock);
+        if (fixture == null)
+            throw new IllegalArgumentException("Strategy does not provide a fixture!");
+
+        // Samplers
+        Sampler[] created = new Sampler[samplers];
+        for (int i = 0; i < samplers; i++)
+            created[i] = fixture.create(PlayerInfo.empty(UUID.randomUUID(), clock.nanoTime()));
+
+        // Run
+        int records = 0;
+        long nextTick = SamplerConformance.TICK, start = System.nanoTime();
+        for (int i = 0; i < clicks; i++) {
+            clock.advance(NANOS_PER_MILLI);
+            // Tick
+            if (clock.nanoTime() >= nextTick) {
+                if (fixture.tick())
+                    records++;
+                nextTick += SamplerConformance.TICK;
+            }
+            // Click
+            if (created[i % samplers].addClick(clock.nanoTime()))
+                records++;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Release
+        for (Sampler sampler : created)
+            fixture.release(sampler);
+        sink = records;
+        return elapsed;
+    }
+
+}
\ No newline at end of file
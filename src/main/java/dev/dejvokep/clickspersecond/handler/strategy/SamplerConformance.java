@@ -0,0 +1,252 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.strategy;
+
+import dev.dejvokep.clickspersecond.handler.sampler.Sampler;
+import dev.dejvokep.clickspersecond.utils.clock.ManualClock;
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Conformance kit for {@link SamplingStrategy sampling strategies}. Drives samplers through a strategy's
+ * {@link SamplerFixture fixture} on a {@link ManualClock} and verifies the contract the handlers rely on:
+ * <ul>
+ *     <li>steady clicking is sampled to the actual CPS (within {@link #TOLERANCE}),</li>
+ *     <li>a finished peak is detected as a new record, through {@link Sampler#addClick(long)},
+ *     {@link SamplerFixture#tick()} or {@link Sampler#close()},</li>
+ *     <li>records are never downgraded, neither by clicking nor by {@link Sampler#setFetchedInfo(PlayerInfo) fetched
+ *     info},</li>
+ *     <li>a record achieved while the info is loading is kept in the snapshot and reported once the info is
+ *     fetched,</li>
+ *     <li>the {@link Sampler#getInfo() info} snapshot is reused while the record does not change,</li>
+ *     <li>{@link Sampler#wipeData()} and idling reset the CPS to zero.</li>
+ * </ul>
+ */
+public class SamplerConformance {
+
+    /**
+     * Click rate used by the checks in clicks per second.
+     */
+    public static final int RATE = 10;
+
+    /**
+     * Allowed deviation of sampled CPS from the {@link #RATE actual rate}.
+     */
+    public static final int TOLERANCE = 2;
+
+    /**
+     * Length of a tick in nanoseconds.
+     */
+    static final long TICK = 50_000_000L;
+
+    /**
+     * Nanoseconds in a second.
+     */
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * Verifies the given strategy and returns descriptions of all failed checks. If the returned list is empty, the
+     * strategy conforms.
+     *
+     * @param strategy the strategy to verify
+     * @return descriptions of all failed checks
+     * @throws IllegalArgumentException if the strategy does not {@link SamplingStrategy#createFixture provide} a
+     *                                  fixture
+     */
+    @NotNull
+    public static List<String> verify(@NotNull SamplingStrategy strategy) {
+        List<String> failures = new ArrayList<>();
+
+        // Initial
+        Run run = new Run(strategy, 0);
+        expect(failures, "initial", run.sampler.getCPS() == 0, "CPS of a new sampler are " + run.sampler.getCPS());
+        expect(failures, "initial", run.sampler.getUniqueId().equals(run.uuid) && run.sampler.getInfo().getUniqueId().equals(run.uuid), "IDs do not match the initial info");
+        expect(failures, "initial", run.sampler.getInfo().getCPS() == 0, "record of a new sampler is " + run.sampler.getInfo().getCPS());
+        // Snapshot
+        expect(failures, "snapshot", run.sampler.getInfo() == run.sampler.getInfo(), "info snapshot is not reused");
+
+        // Steady
+        run.click(3);
+        expect(failures, "steady", inRange(run.sampler.getCPS()), "sampled " + run.sampler.getCPS() + " CPS while clicking at " + RATE);
+        // Idle
+        run.idle(3);
+        expect(failures, "idle", run.sampler.getCPS() == 0, "sampled " + run.sampler.getCPS() + " CPS after idling");
+        // Record
+        boolean closed = run.sampler.close();
+        expect(failures, "record", run.changes > 0 || closed, "record was not reported");
+        expect(failures, "record", inRange(run.sampler.getInfo().getCPS()), "record is " + run.sampler.getInfo().getCPS() + " CPS after clicking at " + RATE);
+        expect(failures, "record", run.sampler.getInfo().getTime() > 0, "time of the record is not set");
+        expect(failures, "close", !run.sampler.close(), "record was reported again by a repeated close");
+        run.release();
+
+        // No downgrade
+        run = new Run(strategy, RATE * 5);
+        run.click(3);
+        run.idle(3);
+        closed = run.sampler.close();
+        expect(failures, "no-downgrade", run.changes == 0 && !closed, "lower CPS were reported as a record");
+        expect(failures, "no-downgrade", run.sampler.getInfo().getCPS() == RATE * 5, "record was downgraded to " + run.sampler.getInfo().getCPS());
+        run.release();
+
+        // Loading
+        run = new Run(strategy, -1);
+        run.click(3);
+        run.idle(3);
+        run.sampler.close();
+        expect(failures, "loading", inRange(run.sampler.getInfo().getCPS()), "record achieved while loading is " + run.sampler.getInfo().getCPS() + " CPS in the info");
+        expect(failures, "loading", run.sampler.setFetchedInfo(PlayerInfo.from(run.uuid, 1, 1, run.clock.nanoTime())), "better local record was not reported after fetching");
+        expect(failures, "loading", inRange(run.sampler.getInfo().getCPS()) && !run.sampler.getInfo().isLoading(), "local record was lost after fetching");
+        run.release();
+
+        // Fetched
+        run = new Run(strategy, 0);
+        expect(failures, "fetched", !run.sampler.setFetchedInfo(PlayerInfo.from(run.uuid, RATE * 5, 1, run.clock.nanoTime())), "better fetched record was reported as a local record");
+        expect(failures, "fetched", run.sampler.getInfo().getCPS() == RATE * 5, "better fetched record was not adopted");
+        run.sampler.setFetchedInfo(PlayerInfo.from(run.uuid, 1, 1, run.clock.nanoTime()));
+        expect(failures, "fetched", run.sampler.getInfo().getCPS() == RATE * 5, "record was downgraded by a worse fetched record");
+
+        // Wipe
+        run.click(2);
+        run.sampler.wipeData();
+        expect(failures, "wipe", run.sampler.getCPS() == 0, "sampled " + run.sampler.getCPS() + " CPS after wiping");
+        expect(failures, "wipe", run.sampler.getInfo().getCPS() == 0, "record is " + run.sampler.getInfo().getCPS() + " CPS after wiping");
+        run.release();
+
+        return failures;
+    }
+
+    /**
+     * Adds a failure to the given list if the condition is not met.
+     *
+     * @param failures  the list of failures
+     * @param check     name of the check
+     * @param condition the condition
+     * @param message   the failure message
+     */
+    private static void expect(@NotNull List<String> failures, @NotNull String check, boolean condition, @NotNull String message) {
+        if (!condition)
+            failures.add(check + ": " + message);
+    }
+
+    /**
+     * Returns if the given CPS are within the {@link #TOLERANCE tolerance} of the {@link #RATE actual rate}.
+     *
+     * @param cps the CPS
+     * @return if within the tolerance
+     */
+    private static boolean inRange(int cps) {
+        return Math.abs(cps - RATE) <= TOLERANCE;
+    }
+
+    /**
+     * A single sampler driven by a fixture.
+     */
+    private static class Run {
+
+        // Owner ID
+        private final UUID uuid = UUID.randomUUID();
+        // Clock, fixture, sampler
+        private final ManualClock clock = new ManualClock(0, 1_000_000L);
+        private final SamplerFixture fixture;
+        private final Sampler sampler;
+        // Times the record has changed while clicking or ticking
+        private int changes = 0;
+        // Monotonic time of the next tick
+        private long nextTick = TICK;
+
+        /**
+         * Creates a sampler with the given record.
+         *
+         * @param strategy the strategy
+         * @param best     the record (of the primary CPS and all channels), or <code>-1</code> for loading info
+         */
+        private Run(@NotNull SamplingStrategy strategy, int best) {
+            SamplerFixture fixture = strategy.createFixture(clock);
+            if (fixture == null)
+                throw new IllegalArgumentException("Strategy does not provide a fixture!");
+            this.fixture = fixture;
+            this.sampler = fixture.create(best < 0 ? PlayerInfo.initial(uuid) : best == 0 ? PlayerInfo.empty(uuid, clock.nanoTime()) : record(best));
+        }
+
+        /**
+         * Creates info with the given record, for the primary CPS and all channels.
+         *
+         * @param best the record
+         * @return the info
+         */
+        @NotNull
+        private PlayerInfo record(int best) {
+            int[] channelCPS = new int[ClickChannel.VALUES.length];
+            long[] channelTimes = new long[ClickChannel.VALUES.length];
+            Arrays.fill(channelCPS, best);
+            Arrays.fill(channelTimes, 1);
+            return PlayerInfo.from(uuid, best, 1, clock.nanoTime(), channelCPS, channelTimes);
+        }
+
+        /**
+         * Clicks at the {@link #RATE rate} for the given amount of seconds, ticking the fixture in between.
+         *
+         * @param seconds the amount of seconds
+         */
+        private void click(int seconds) {
+            long interval = NANOS_PER_SECOND / RATE, end = clock.nanoTime() + seconds * NANOS_PER_SECOND;
+            for (long next = clock.nanoTime() + interval; next <= end; next += interval) {
+                tickUntil(next);
+                if (sampler.addClick(clock.nanoTime()))
+                    changes++;
+            }
+        }
+
+        /**
+         * Ticks the fixture for the given amount of seconds without clicking.
+         *
+         * @param seconds the amount of seconds
+         */
+        private void idle(int seconds) {
+            tickUntil(clock.nanoTime() + seconds * NANOS_PER_SECOND);
+        }
+
+        /**
+         * Advances the clock to the given time, ticking the fixture on each tick passed.
+         *
+         * @param time the monotonic time
+         */
+        private void tickUntil(long time) {
+            while (nextTick <= time) {
+                clock.advance(nextTick - clock.nanoTime());
+                if (fixture.tick())
+                    changes++;
+                nextTick += TICK;
+            }
+            clock.advance(time - clock.nanoTime());
+        }
+
+        /**
+         * Releases the sampler.
+         */
+        private void release() {
+            fixture.release(sampler);
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.strategy;
+
+import dev.dejvokep.clickspersecond.handler.sampler.Sampler;
+import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Drives samplers of a {@link SamplingStrategy} the same way its handler would, but without the server. All samplers
+ * created by a fixture share the clock the fixture was created with.
+ */
+public interface SamplerFixture {
+
+    /**
+     * Creates a sampler with the given initial info.
+     *
+     * @param info the initial info
+     * @return the created sampler
+     */
+    @NotNull
+    Sampler create(@NotNull PlayerInfo info);
+
+    /**
+     * Called once per tick (after the clock has been advanced by 50 milliseconds), performs any periodic work the
+     * handler would. Returns if the record of any sampler has changed, in which case its
+     * {@link Sampler#getInfo() info} would be uploaded to the data storage.
+     *
+     * @return if the record of any sampler has changed
+     */
+    default boolean tick() {
+        return false;
+    }
+
+    /**
+     * Releases the given sampler. It must not be used afterwards.
+     *
+     * @param sampler the sampler to release
+     */
+    default void release(@NotNull Sampler sampler) {
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.strategy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registry of {@link SamplingStrategy sampling strategies} by name. Names are case-insensitive. All
+ * {@link BuiltinStrategy built-in strategies} are registered by default.
+ * <p>
+ * The strategy is selected once the plugin is enabled, so other plugins should register their strategies while
+ * loading (<code>onLoad</code>).
+ */
+public class SamplingStrategies {
+
+    // Strategies
+    private final Map<String, SamplingStrategy> strategies = new LinkedHashMap<>();
+
+    /**
+     * Initializes the registry with all built-in strategies.
+     */
+    public SamplingStrategies() {
+        for (BuiltinStrategy strategy : BuiltinStrategy.values())
+            strategies.put(strategy.name(), strategy);
+    }
+
+    /**
+     * Registers the given strategy under the given name. If another strategy is already registered under the name,
+     * it is replaced (including built-in ones).
+     *
+     * @param name     the name
+     * @param strategy the strategy
+     */
+    public synchronized void register(@NotNull String name, @NotNull SamplingStrategy strategy) {
+        strategies.put(normalize(name), strategy);
+    }
+
+    /**
+     * Unregisters strategy registered under the given name.
+     *
+     * @param name the name
+     * @return the unregistered strategy, if any
+     */
+    @Nullable
+    public synchronized SamplingStrategy unregister(@NotNull String name) {
+        return strategies.remove(normalize(name));
+    }
+
+    /**
+     * Returns strategy registered under the given name, or <code>null</code> if there is none.
+     *
+     * @param name the name
+     * @return the strategy, if any
+     */
+    @Nullable
+    public synchronized SamplingStrategy get(@NotNull String name) {
+        return strategies.get(normalize(name));
+    }
+
+    /**
+     * Returns an unmodifiable snapshot of names of all registered strategies, in order of registration.
+     *
+     * @return names of all registered strategies
+     */
+    @NotNull
+    public synchronized Set<String> getNames() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(strategies.keySet()));
+    }
+
+    /**
+     * Normalizes the given name.
+     *
+     * @param name the name
+     * @return the normalized name
+     */
+    @NotNull
+    private static String normalize(@NotNull String name) {
+        return name.trim().toUpperCase(Locale.ROOT);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.handler.strategy;
+
+import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.handler.ClickHandler;
+import dev.dejvokep.clickspersecond.handler.sampler.Sampler;
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A named sampling strategy - a pair of {@link ClickHandler} and the {@link Sampler} it uses. Strategies are
+ * {@link SamplingStrategies#register(String, SamplingStrategy) registered} under a name, which can then be selected by
+ * the <code>sampling-mode</code> config option.
+ */
+@FunctionalInterface
+public interface SamplingStrategy {
+
+    /**
+     * Creates the click handler. Called once when the plugin is enabled, the handler should read any options it needs
+     * from the {@link ClicksPerSecond#getConfiguration() configuration}.
+     *
+     * @param plugin the plugin
+     * @return the created handler
+     */
+    @NotNull
+    ClickHandler<? extends Sampler> createHandler(@NotNull ClicksPerSecond plugin);
+
+    /**
+     * Creates a fixture which drives samplers of this strategy outside of the server, used by the
+     * {@link SamplerConformance conformance} and {@link SamplerBenchmark benchmark} kits. Returns <code>null</code> by
+     * default, meaning the strategy cannot be verified.
+     *
+     * @param clock the clock the samplers should use
+     * @return the fixture, if supported
+     */
+    @Nullable
+    default SamplerFixture createFixture(@NotNull Clock clock) {
+        return null;
+    }
+
+}
\ No newline at end of file
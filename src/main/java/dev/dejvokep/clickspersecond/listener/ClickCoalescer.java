@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.listener;
+
+import dev.dejvokep.clickspersecond.utils.collection.UUIDIntMap;
+import dev.dejvokep.clickspersecond.utils.container.SlotAllocator;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Coalesces interact and damage events fired for the same swing into a single click.
+ * <p>
+ * Hitting an entity fires both {@link org.bukkit.event.player.PlayerInteractEvent} (if the entity is at the edge of
+ * reach) and {@link org.bukkit.event.entity.EntityDamageByEntityEvent}, during the same tick. For each player, the
+ * coalescer counts events of each source during the current tick; an event is only a new click if there is no
+ * unmatched event of the other source from the same tick, otherwise the two are matched as one swing. Multiple events
+ * of the same source are never collapsed, as more clicks can be received during one tick.
+ * <p>
+ * Per-player state is stored in primitive arrays indexed by dense slots, which are mapped without boxing.
+ */
+public class ClickCoalescer {
+
+    /**
+     * Initial capacity of the arrays.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Slots
+    private final SlotAllocator allocator = new SlotAllocator();
+    private final UUIDIntMap slots = new UUIDIntMap();
+    // Tick of the counts, unmatched interact and damage events during that tick
+    private int[] ticks = new int[INITIAL_CAPACITY], interacts = new int[INITIAL_CAPACITY], damages = new int[INITIAL_CAPACITY];
+    // Current tick
+    private int tick = 0;
+
+    /**
+     * Initializes the coalescer and starts counting ticks.
+     *
+     * @param plugin the plugin
+     */
+    public ClickCoalescer(@NotNull Plugin plugin) {
+        Bukkit.getScheduler().runTaskTimer(plugin, () -> tick++, 1L, 1L);
+    }
+
+    /**
+     * Registers an interact event (left click) of the given player and returns if it is a new click.
+     *
+     * @param uuid the ID of the player
+     * @return if the event is a new click
+     */
+    public boolean interact(@NotNull UUID uuid) {
+        int slot = slot(uuid);
+        // Matches a damage event
+        if (damages[slot] > 0) {
+            damages[slot]--;
+            return false;
+        }
+
+        // New click
+        interacts[slot]++;
+        return true;
+    }
+
+    /**
+     * Registers a damage event (attack) of the given player and returns if it is a new click.
+     *
+     * @param uuid the ID of the player
+     * @return if the event is a new click
+     */
+    public boolean damage(@NotNull UUID uuid) {
+        int slot = slot(uuid);
+        // Matches an interact event
+        if (interacts[slot] > 0) {
+            interacts[slot]--;
+            return false;
+        }
+
+        // New click
+        damages[slot]++;
+        return true;
+    }
+
+    /**
+     * Releases the state of the given player.
+     *
+     * @param player the player
+     */
+    public void remove(@NotNull Player player) {
+        int slot = slots.remove(player.getUniqueId(), -1);
+        if (slot != -1)
+            allocator.release(slot);
+    }
+
+    /**
+     * Returns the slot of the given player, allocating one if needed. Resets the counts if they are from a previous
+     * tick.
+     *
+     * @param uuid the ID of the player
+     * @return the slot
+     */
+    private int slot(@NotNull UUID uuid) {
+        // Slot
+        int slot = slots.getOrDefault(uuid, -1);
+        if (slot == -1) {
+            // Allocate
+            slot = allocator.allocate();
+            slots.put(uuid, slot);
+            // Grow
+            if (slot == ticks.length) {
+                ticks = Arrays.copyOf(ticks, slot * 2);
+                interacts = Arrays.copyOf(interacts, slot * 2);
+                damages = Arrays.copyOf(damages, slot * 2);
+            }
+            // Force reset
+            ticks[slot] = tick - 1;
+        }
+
+        // New tick
+        if (ticks[slot] != tick) {
+            ticks[slot] = tick;
+            interacts[slot] = damages[slot] = 0;
+        }
+        return slot;
+    }
+
+}
\ No newline at end of file
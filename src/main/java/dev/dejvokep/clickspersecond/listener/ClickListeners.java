@@ -0,0 +1,327 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.listener;
+
+import dev.dejvokep.boostedyaml.block.implementation.Section;
+import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
+import org.bukkit.Bukkit;
+import org.bukkit.GameMode;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Click listeners, which pass events through a filter chain before clicks reach the
+ * {@link dev.dejvokep.clickspersecond.handler.ClickHandler handler}:
+ * <ol>
+ *     <li>events which are not clicks of a player are rejected (cheap type checks only),</li>
+ *     <li>optionally, cancelled events and events of players in ignored game modes or worlds are rejected,</li>
+ *     <li>optionally, interact and damage events of the same swing are {@link ClickCoalescer coalesced}.</li>
+ * </ol>
+ * Listeners run at {@link EventPriority#MONITOR} priority and are registered per {@link ClickSource source}; sources
+ * which are disabled have no listeners registered at all. Accepted and rejected events are counted per source.
+ * <p>
+ * If configured and ProtocolLib is available, clicks are captured from packets by a {@link PacketClickListener}
+ * instead, which uses the same filters and counters, but runs off the main thread. As the Bukkit API must not be used
+ * there, the game mode and world filters are evaluated per player on the main thread (on join, world change, game mode
+ * change and reload) and the packet listener only reads the cached results.
+ */
+public class ClickListeners {
+
+    // Plugin
+    private final ClicksPerSecond plugin;
+    // Click coalescer
+    private final ClickCoalescer coalescer;
+    // Listener instances (handles for unregistering) by source
+    private final Listener[] listeners = new Listener[ClickSource.values().length];
+    // Packet listener
+    private PacketClickListener packetListener;
+    // Counters by source
+    private final AtomicLongArray accepted = new AtomicLongArray(ClickSource.values().length), rejected = new AtomicLongArray(ClickSource.values().length);
+
+    // Coalesce clicks, ignore cancelled
+    private volatile boolean coalesceClicks, ignoreCancelled;
+    // Ignored worlds and game modes
+    private volatile Set<String> ignoredWorlds;
+    private volatile Set<GameMode> ignoredGameModes;
+    // Players in ignored game modes or worlds (cached for the packet listener)
+    private final Set<UUID> ignoredPlayers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Initializes and registers the listeners. Automatically calls {@link #reload()}.
+     *
+     * @param plugin the plugin
+     */
+    public ClickListeners(@NotNull ClicksPerSecond plugin) {
+        this.plugin = plugin;
+        this.coalescer = new ClickCoalescer(plugin);
+        reload();
+    }
+
+    /**
+     * Handles the given interact event.
+     *
+     * @param event the event
+     */
+    private void onInteract(@NotNull PlayerInteractEvent event) {
+        // Channel
+        ClickChannel channel;
+        if (event.getAction() == Action.LEFT_CLICK_AIR || event.getAction() == Action.LEFT_CLICK_BLOCK)
+            channel = ClickChannel.LEFT;
+        else if ((event.getAction() == Action.RIGHT_CLICK_AIR || event.getAction() == Action.RIGHT_CLICK_BLOCK) && event.getHand() == EquipmentSlot.HAND && plugin.getClickHandler().isMultiChannel())
+            // Right clicks are fired once per hand
+            channel = ClickChannel.RIGHT;
+        else
+            return;
+
+        // Player
+        Player player = event.getPlayer();
+        // Filter (interactions with air are always fired cancelled, so the cancelled state is meaningless here)
+        if (!test(player, false) || (channel == ClickChannel.LEFT && coalesceClicks && listeners[ClickSource.DAMAGE.ordinal()] != null && !coalescer.interact(player.getUniqueId()))) {
+            reject(ClickSource.INTERACT);
+            return;
+        }
+
+        // Process
+        accept(ClickSource.INTERACT);
+        plugin.getClickHandler().processClick(player.getUniqueId(), channel);
+    }
+
+    /**
+     * Handles the given damage event.
+     *
+     * @param event the event
+     */
+    private void onDamage(@NotNull EntityDamageByEntityEvent event) {
+        // Damager
+        Entity damager = event.getDamager();
+        // Filter
+        if (!(damager instanceof Player) || !test((Player) damager, event.isCancelled()) ||
+                (coalesceClicks && listeners[ClickSource.INTERACT.ordinal()] != null && !coalescer.damage(damager.getUniqueId()))) {
+            reject(ClickSource.DAMAGE);
+            return;
+        }
+
+        // Process
+        accept(ClickSource.DAMAGE);
+        plugin.getClickHandler().processClick(damager.getUniqueId(), ClickChannel.ENTITY);
+    }
+
+    /**
+     * Returns if the given click of the given player passes the cancellation, game mode and world filters.
+     *
+     * @param player    the player
+     * @param cancelled if the event of the click is cancelled
+     * @return if the click should be processed
+     */
+    boolean test(@NotNull Player player, boolean cancelled) {
+        // Filters
+        Set<GameMode> ignoredGameModes = this.ignoredGameModes;
+        Set<String> ignoredWorlds = this.ignoredWorlds;
+        // Test
+        return !(cancelled && ignoreCancelled) && (ignoredGameModes.isEmpty() || !ignoredGameModes.contains(player.getGameMode())) &&
+                (ignoredWorlds.isEmpty() || !ignoredWorlds.contains(player.getWorld().getName()));
+    }
+
+    /**
+     * Returns if the given click of the given player passes the cancellation filter and the cached game mode and world
+     * filters. Can be called from any thread.
+     *
+     * @param uuid      the ID of the player
+     * @param cancelled if the event of the click is cancelled
+     * @return if the click should be processed
+     * @see #update(Player, GameMode)
+     */
+    boolean test(@NotNull UUID uuid, boolean cancelled) {
+        return !(cancelled && ignoreCancelled) && !ignoredPlayers.contains(uuid);
+    }
+
+    /**
+     * Evaluates the game mode and world filters for the given player, caching the result for
+     * {@link #test(UUID, boolean)}. Must be called on the main thread.
+     *
+     * @param player the player
+     */
+    public void update(@NotNull Player player) {
+        update(player, player.getGameMode());
+    }
+
+    /**
+     * Evaluates the game mode and world filters for the given player with the given game mode (e.g. one the player is
+     * about to switch to), caching the result for {@link #test(UUID, boolean)}. Must be called on the main thread.
+     *
+     * @param player   the player
+     * @param gameMode the game mode of the player
+     */
+    public void update(@NotNull Player player, @NotNull GameMode gameMode) {
+        if (ignoredGameModes.contains(gameMode) || ignoredWorlds.contains(player.getWorld().getName()))
+            ignoredPlayers.add(player.getUniqueId());
+        else
+            ignoredPlayers.remove(player.getUniqueId());
+    }
+
+    /**
+     * Counts an accepted click of the given source.
+     *
+     * @param source the source
+     */
+    void accept(@NotNull ClickSource source) {
+        accepted.incrementAndGet(source.ordinal());
+    }
+
+    /**
+     * Counts a rejected click of the given source.
+     *
+     * @param source the source
+     */
+    void reject(@NotNull ClickSource source) {
+        rejected.incrementAndGet(source.ordinal());
+    }
+
+    /**
+     * Removes the given player.
+     *
+     * @param player the player to remove
+     */
+    public void remove(@NotNull Player player) {
+        coalescer.remove(player);
+        ignoredPlayers.remove(player.getUniqueId());
+        if (packetListener != null)
+            packetListener.remove(player.getUniqueId());
+    }
+
+    /**
+     * Reloads internal configuration and re-registers listeners of all enabled sources.
+     */
+    public void reload() {
+        // Unregister
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] != null)
+                HandlerList.unregisterAll(listeners[i]);
+            listeners[i] = null;
+        }
+        if (packetListener != null) {
+            packetListener.unregister();
+            packetListener = null;
+        }
+
+        // Config
+        Section config = plugin.getConfiguration().getSection("click-filter");
+        coalesceClicks = plugin.getConfiguration().getBoolean("coalesce-clicks");
+        ignoreCancelled = config.getBoolean("ignore-cancelled");
+        ignoredWorlds = new HashSet<>(config.getStringList("ignored-worlds"));
+        ignoredGameModes = EnumSet.noneOf(GameMode.class);
+        for (String gameMode : config.getStringList("ignored-game-modes")) {
+            try {
+                ignoredGameModes.add(GameMode.valueOf(gameMode.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException ignored) {
+                plugin.getLogger().warning("Invalid game mode \"" + gameMode + "\" in click-filter.ignored-game-modes!");
+            }
+        }
+        // Cache filters
+        Bukkit.getOnlinePlayers().forEach(this::update);
+
+        // Entity clicks only
+        boolean entityClicksOnly = plugin.getConfiguration().getBoolean("entity-clicks-only");
+
+        // Packets
+        if (plugin.getConfiguration().getString("ingestion").equalsIgnoreCase("PACKETS")) {
+            // Register
+            if (Bukkit.getPluginManager().isPluginEnabled("ProtocolLib")) {
+                packetListener = new PacketClickListener(plugin, this, entityClicksOnly);
+                packetListener.register();
+                return;
+            }
+
+            // Fall back
+            plugin.getLogger().warning("Packet ingestion requires ProtocolLib, which is not available! Falling back to events.");
+        }
+
+        // Register
+        if (!entityClicksOnly)
+            register(ClickSource.INTERACT, PlayerInteractEvent.class);
+        register(ClickSource.DAMAGE, EntityDamageByEntityEvent.class);
+    }
+
+    /**
+     * Registers listener of the given source.
+     *
+     * @param source the source
+     * @param type   type of the event to listen to
+     */
+    private void register(@NotNull ClickSource source, @NotNull Class<? extends Event> type) {
+        // Listener handle
+        Listener listener = new Listener() {
+        };
+        listeners[source.ordinal()] = listener;
+
+        // Register (subclasses sharing the handler list are also passed to the executor)
+        Bukkit.getPluginManager().registerEvent(type, listener, EventPriority.MONITOR, (ignored, event) -> {
+            if (event instanceof PlayerInteractEvent)
+                onInteract((PlayerInteractEvent) event);
+            else if (event instanceof EntityDamageByEntityEvent)
+                onDamage((EntityDamageByEntityEvent) event);
+        }, plugin, false);
+    }
+
+    /**
+     * Returns if the given source is enabled (has its listener registered).
+     *
+     * @param source the source
+     * @return if the source is enabled
+     */
+    public boolean isEnabled(@NotNull ClickSource source) {
+        return listeners[source.ordinal()] != null || (packetListener != null && packetListener.getSource() == source);
+    }
+
+    /**
+     * Returns the amount of events of the given source which were accepted as clicks.
+     *
+     * @param source the source
+     * @return the amount of accepted events
+     */
+    public long getAccepted(@NotNull ClickSource source) {
+        return accepted.get(source.ordinal());
+    }
+
+    /**
+     * Returns the amount of events of the given source which were rejected by the filters.
+     *
+     * @param source the source
+     * @return the amount of rejected events
+     */
+    public long getRejected(@NotNull ClickSource source) {
+        return rejected.get(source.ordinal());
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.listener;
+
+/**
+ * Sources of clicks.
+ */
+public enum ClickSource {
+
+    /**
+     * Left clicks (and right clicks, if the handler is
+     * {@link dev.dejvokep.clickspersecond.handler.ClickHandler#isMultiChannel() multi-channel}) at air or blocks,
+     * registered by {@link org.bukkit.event.player.PlayerInteractEvent}.
+     */
+    INTERACT,
+
+    /**
+     * Attacks at other entities, registered by {@link org.bukkit.event.entity.EntityDamageByEntityEvent}.
+     */
+    DAMAGE,
+
+    /**
+     * Main hand arm swings (all left clicks), registered by the arm animation packet, excluding swings caused by
+     * mining, using items, placing blocks or interacting with entities. Requires ProtocolLib.
+     */
+    SWING,
+
+    /**
+     * Attacks at other entities, registered by the use entity packet. Requires ProtocolLib.
+     */
+    ATTACK
+
+}
\ No newline at end of file
@@ -19,10 +19,10 @@ import dev.dejvokep.clickspersecond.ClicksPerSecond;
 import dev.dejvokep.clickspersecond.utils.messaging.Messenger;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.block.Action;
-import org.bukkit.event.entity.EntityDamageByEntityEvent;
-import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerGameModeChangeEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.jetbrains.annotations.NotNull;
@@ -34,11 +34,12 @@ public class EventListeners implements Listener {
 
     // Plugin
     private final ClicksPerSecond plugin;
-    // Entity clicks only
-    private boolean entityClicksOnly;
+    // Click listeners
+    private ClickListeners clickListeners;
 
     /**
-     * Initializes (but does not register) this event listener. Automatically calls {@link #reload()}.
+     * Initializes (but does not register) this event listener. Click listeners are registered separately, by
+     * {@link ClickListeners}, which are initialized by calling {@link #reload()} for the first time.
      *
      * @param plugin the plugin
      */
@@ -51,15 +52,28 @@ public class EventListeners implements Listener {
     public void onJoin(PlayerJoinEvent event) {
         // Add
         plugin.getClickHandler().add(event.getPlayer());
+        clickListeners.update(event.getPlayer());
         plugin.getDisplays().forEach(display -> display.add(event.getPlayer()));
     }
 
+    @EventHandler
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        clickListeners.update(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onGameModeChange(PlayerGameModeChangeEvent event) {
+        // Fired before the change
+        clickListeners.update(event.getPlayer(), event.getNewGameMode());
+    }
+
     @EventHandler
     public void onQuit(PlayerQuitEvent event) {
         // Player
         Player player = event.getPlayer();
         // Remove
         plugin.getClickHandler().remove(player);
+        clickListeners.remove(player);
         plugin.getDataStorage().skipFetch(player.getUniqueId());
         plugin.getDisplays().forEach(display -> display.remove(player));
 
@@ -74,22 +88,24 @@ public class EventListeners implements Listener {
         plugin.getWatchManager().stop(player);
     }
 
-    @EventHandler
-    public void onClick(PlayerInteractEvent event) {
-        if ((event.getAction() == Action.LEFT_CLICK_AIR || event.getAction() == Action.LEFT_CLICK_BLOCK) && !entityClicksOnly)
-            plugin.getClickHandler().processClick(event.getPlayer().getUniqueId());
-    }
-
-    @EventHandler
-    public void onDamage(EntityDamageByEntityEvent event) {
-        plugin.getClickHandler().processClick(event.getDamager().getUniqueId());
+    /**
+     * Reloads internal configuration, including the click listeners.
+     */
+    public void reload() {
+        if (clickListeners == null)
+            clickListeners = new ClickListeners(plugin);
+        else
+            clickListeners.reload();
     }
 
     /**
-     * Reloads internal configuration.
+     * Returns the click listeners.
+     *
+     * @return the click listeners
      */
-    public void reload() {
-        entityClicksOnly = plugin.getConfiguration().getBoolean("entity-clicks-only");
+    @NotNull
+    public ClickListeners getClickListeners() {
+        return clickListeners;
     }
 
 }
\ No newline at end of file
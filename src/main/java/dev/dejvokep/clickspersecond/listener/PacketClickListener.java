@@ -0,0 +1,233 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.listener;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.events.ListenerPriority;
+import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.reflect.StructureModifier;
+import com.comphenix.protocol.wrappers.EnumWrappers;
+import com.comphenix.protocol.wrappers.WrappedEnumEntityUseAction;
+import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
+import dev.dejvokep.clickspersecond.utils.clock.TickClock;
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Packet listener capturing clicks directly from client packets (requires ProtocolLib). Packets are received on the
+ * network thread of each player, where the clicks are also queued with the time they were received, so no click
+ * processing runs on the main thread.
+ * <p>
+ * If counting all clicks, main hand arm swing packets are captured (sent for every left click, including attacks);
+ * otherwise, only use entity packets with the attack action are. As the client also swings its arm when it is not
+ * clicking, swings are dropped if caused by:
+ * <ul>
+ *     <li>mining a block - from a dig start until the dig is stopped or aborted, the client swings every tick (the
+ *     digging ends as well if there is no swing for {@link #DIG_TIMEOUT}, e.g. if the block broke instantly),</li>
+ *     <li>any other dig packet, item use, block place or entity interaction (except attacks) received during the same
+ *     tick.</li>
+ * </ul>
+ * The detection is heuristic; to count attacks only, which are always exact, enable entity clicks only.
+ */
+public class PacketClickListener extends PacketAdapter {
+
+    /**
+     * Duration of a tick in nanoseconds; swings received within a tick after a non-click packet are dropped.
+     */
+    private static final long TICK = 50_000_000L;
+
+    /**
+     * Max interval in nanoseconds between swings of a player who is digging, after which the digging is considered
+     * finished.
+     */
+    private static final long DIG_TIMEOUT = 2 * TICK;
+
+    // Plugin
+    private final ClicksPerSecond plugin;
+    // Listeners
+    private final ClickListeners listeners;
+    // Source and channel
+    private final ClickSource source;
+    private final ClickChannel channel;
+    // Clock
+    private final Clock clock;
+    // Swing states by player
+    private final Map<UUID, SwingState> states = new ConcurrentHashMap<>();
+
+    /**
+     * Initializes (but does not register) the listener.
+     *
+     * @param plugin           the plugin
+     * @param listeners        the click listeners (filters and counters)
+     * @param entityClicksOnly if to only capture attacks
+     */
+    public PacketClickListener(@NotNull ClicksPerSecond plugin, @NotNull ClickListeners listeners, boolean entityClicksOnly) {
+        super(plugin, ListenerPriority.MONITOR, entityClicksOnly ? new PacketType[]{PacketType.Play.Client.USE_ENTITY} :
+                new PacketType[]{PacketType.Play.Client.ARM_ANIMATION, PacketType.Play.Client.BLOCK_DIG, PacketType.Play.Client.USE_ITEM, PacketType.Play.Client.BLOCK_PLACE, PacketType.Play.Client.USE_ENTITY});
+        this.plugin = plugin;
+        this.listeners = listeners;
+        this.source = entityClicksOnly ? ClickSource.ATTACK : ClickSource.SWING;
+        this.channel = entityClicksOnly ? ClickChannel.ENTITY : ClickChannel.LEFT;
+        // Read the time precisely, the cached time is only updated on the main thread
+        this.clock = plugin.getClock() instanceof TickClock ? ((TickClock) plugin.getClock()).getSource() : plugin.getClock();
+    }
+
+    @Override
+    public void onPacketReceiving(PacketEvent event) {
+        // Receive time
+        long time = clock.nanoTime();
+        // Not a player yet
+        if (event.isPlayerTemporary())
+            return;
+        // Player
+        UUID uuid = event.getPlayer().getUniqueId();
+        // Not an attack
+        if (source == ClickSource.ATTACK && !isAttack(event.getPacket()))
+            return;
+        // Not a click
+        if (source == ClickSource.SWING && !isClick(uuid, event.getPacketType(), event.getPacket(), time))
+            return;
+
+        // Filter (cached, the Bukkit API must not be used off the main thread)
+        if (!listeners.test(uuid, event.isCancelled())) {
+            listeners.reject(source);
+            return;
+        }
+
+        // Process
+        listeners.accept(source);
+        plugin.getClickHandler().processClick(uuid, time, channel);
+    }
+
+    /**
+     * Returns if the given packet received in the swing mode represents a click, updating the swing state of the
+     * player. Non-swing packets are never clicks; swings which are not clicks are counted as rejected.
+     *
+     * @param uuid   the ID of the player
+     * @param type   type of the packet
+     * @param packet the packet
+     * @param time   the monotonic time at which the packet was received
+     * @return if the packet is a click
+     */
+    private boolean isClick(@NotNull UUID uuid, @NotNull PacketType type, @NotNull PacketContainer packet, long time) {
+        // State (packets of a player are received on a single thread)
+        SwingState state = states.computeIfAbsent(uuid, key -> new SwingState());
+
+        // Dig
+        if (type == PacketType.Play.Client.BLOCK_DIG) {
+            EnumWrappers.PlayerDigType dig = packet.getPlayerDigTypes().readSafely(0);
+            if (dig == EnumWrappers.PlayerDigType.START_DESTROY_BLOCK)
+                state.digging = true;
+            else if (dig == EnumWrappers.PlayerDigType.ABORT_DESTROY_BLOCK || dig == EnumWrappers.PlayerDigType.STOP_DESTROY_BLOCK)
+                state.digging = false;
+            state.suppressed = time;
+            return false;
+        }
+        // Use or interaction
+        if (type != PacketType.Play.Client.ARM_ANIMATION) {
+            if (type != PacketType.Play.Client.USE_ENTITY || !isAttack(packet))
+                state.suppressed = time;
+            return false;
+        }
+
+        // Off hand (the hand is only sent by 1.9+ clients)
+        if (packet.getHands().readSafely(0) == EnumWrappers.Hand.OFF_HAND) {
+            listeners.reject(source);
+            return false;
+        }
+
+        // Digging finished without a packet
+        if (state.digging && time - state.swing > DIG_TIMEOUT)
+            state.digging = false;
+        state.swing = time;
+        // Caused by digging or by another packet
+        if (state.digging || time - state.suppressed <= TICK) {
+            listeners.reject(source);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes state of the given player.
+     *
+     * @param uuid the ID of the player
+     */
+    public void remove(@NotNull UUID uuid) {
+        states.remove(uuid);
+    }
+
+    /**
+     * Returns if the given use entity packet represents an attack.
+     *
+     * @param packet the packet
+     * @return if the packet is an attack
+     */
+    private static boolean isAttack(@NotNull PacketContainer packet) {
+        // 1.17+
+        StructureModifier<WrappedEnumEntityUseAction> wrapped = packet.getEnumEntityUseActions();
+        if (wrapped.size() > 0)
+            return wrapped.read(0).getAction() == EnumWrappers.EntityUseAction.ATTACK;
+        // Legacy
+        return packet.getEntityUseActions().readSafely(0) == EnumWrappers.EntityUseAction.ATTACK;
+    }
+
+    /**
+     * Registers the listener.
+     */
+    public void register() {
+        ProtocolLibrary.getProtocolManager().addPacketListener(this);
+    }
+
+    /**
+     * Unregisters the listener.
+     */
+    public void unregister() {
+        ProtocolLibrary.getProtocolManager().removePacketListener(this);
+    }
+
+    /**
+     * Returns the source of clicks captured by this listener.
+     *
+     * @return the source
+     */
+    @NotNull
+    public ClickSource getSource() {
+        return source;
+    }
+
+    /**
+     * Swing state of a player.
+     */
+    private static class SwingState {
+
+        // If digging
+        private boolean digging = false;
+        // Monotonic times of the last swing and of the last packet suppressing swings
+        private long swing = Long.MIN_VALUE / 2, suppressed = Long.MIN_VALUE / 2;
+
+    }
+
+}
\ No newline at end of file
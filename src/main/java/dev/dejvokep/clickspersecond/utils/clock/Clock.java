@@ -0,0 +1,39 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.clock;
+
+/**
+ * A source of time used by samplers, caches and player information.
+ */
+public interface Clock {
+
+    /**
+     * Returns the current value of a monotonic time source in nanoseconds. The value has no relation to the wall clock
+     * and should only be used to measure elapsed time (e.g. sampling windows or expirations).
+     *
+     * @return the current monotonic time in nanoseconds
+     */
+    long nanoTime();
+
+    /**
+     * Returns the current wall clock time in milliseconds since the epoch. Should be used for times which are persisted
+     * or displayed (e.g. the time at which a record was achieved).
+     *
+     * @return the current wall clock time in milliseconds
+     */
+    long currentTimeMillis();
+
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.clock;
+
+/**
+ * Implementation of {@link Clock} which only moves when {@link #advance(long) advanced}. Used to drive samplers
+ * deterministically, e.g. by the {@link dev.dejvokep.clickspersecond.handler.strategy.SamplerConformance conformance
+ * kit}.
+ */
+public class ManualClock implements Clock {
+
+    // Monotonic time, wall time at monotonic time of 0
+    private long nanoTime, epoch;
+
+    /**
+     * Initializes the clock at the given times.
+     *
+     * @param nanoTime          the initial monotonic time in nanoseconds
+     * @param currentTimeMillis the initial wall clock time in milliseconds
+     */
+    public ManualClock(long nanoTime, long currentTimeMillis) {
+        this.nanoTime = nanoTime;
+        this.epoch = currentTimeMillis - nanoTime / 1_000_000L;
+    }
+
+    /**
+     * Advances both times by the given amount of nanoseconds.
+     *
+     * @param nanos the amount of nanoseconds to advance by, must not be negative
+     */
+    public void advance(long nanos) {
+        nanoTime += nanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return epoch + nanoTime / 1_000_000L;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.clock;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Implementation of {@link Clock} which caches time of the given source once per server tick, so reading the time
+ * does not query the system timers.
+ */
+public class TickClock implements Clock {
+
+    // Source
+    private final Clock source;
+    // Task
+    private final BukkitTask task;
+
+    // Cached times
+    private volatile long nanoTime, currentTimeMillis;
+
+    /**
+     * Initializes the clock and starts caching time of the given source each tick.
+     *
+     * @param plugin the plugin to schedule the caching task for
+     * @param source the source clock
+     */
+    public TickClock(@NotNull Plugin plugin, @NotNull Clock source) {
+        this.source = source;
+        update();
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this::update, 1L, 1L);
+    }
+
+    /**
+     * Caches the current time of the source.
+     */
+    private void update() {
+        nanoTime = source.nanoTime();
+        currentTimeMillis = source.currentTimeMillis();
+    }
+
+    /**
+     * Stops caching the time.
+     */
+    public void stop() {
+        task.cancel();
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return currentTimeMillis;
+    }
+
+    /**
+     * Returns the source clock.
+     *
+     * @return the source clock
+     */
+    @NotNull
+    public Clock getSource() {
+        return source;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.collection;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Open-addressing hash map of primitive <code>int</code> values, keyed directly by the two <code>long</code> halves of
+ * {@link UUID unique IDs}. Neither lookups, nor updates allocate (values are never boxed).
+ * <p>
+ * <b>The map is not thread-safe.</b>
+ */
+public class UUIDIntMap extends UUIDTable {
+
+    /**
+     * Initializes an empty map.
+     */
+    public UUIDIntMap() {
+        super();
+    }
+
+    /**
+     * Returns the value mapped to the given ID, or the given default value if absent.
+     *
+     * @param key    the ID
+     * @param absent the value to return if absent
+     * @return the value, or the default value
+     */
+    public int getOrDefault(@NotNull UUID key, int absent) {
+        int i = indexOf(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        return i == -1 ? absent : ints[i];
+    }
+
+    /**
+     * Maps the given value to the given ID.
+     *
+     * @param key   the ID
+     * @param value the value
+     */
+    public void put(@NotNull UUID key, int value) {
+        // Insert first, as it might reallocate the array
+        int i = insert(key);
+        ints[i] = value;
+    }
+
+    /**
+     * Removes mapping of the given ID and returns the removed value, or the given default value if absent.
+     *
+     * @param key    the ID
+     * @param absent the value to return if absent
+     * @return the removed value, or the default value
+     */
+    public int remove(@NotNull UUID key, int absent) {
+        int i = indexOf(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (i == -1)
+            return absent;
+
+        int previous = ints[i];
+        removeAt(i);
+        return previous;
+    }
+
+}
\ No newline at end of file
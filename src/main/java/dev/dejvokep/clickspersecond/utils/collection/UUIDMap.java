@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.collection;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Open-addressing hash map keyed directly by the two <code>long</code> halves of {@link UUID unique IDs}. Neither
+ * lookups, nor updates of existing entries allocate.
+ * <p>
+ * <b>The map is not thread-safe.</b> Does not permit <code>null</code> values.
+ *
+ * @param <V> type of the values
+ */
+public class UUIDMap<V> extends UUIDTable {
+
+    /**
+     * Initializes an empty map.
+     */
+    public UUIDMap() {
+        super(true);
+    }
+
+    /**
+     * Initializes a map containing all mappings of the given map.
+     *
+     * @param map the map to copy
+     */
+    public UUIDMap(@NotNull UUIDMap<? extends V> map) {
+        super(map);
+    }
+
+    /**
+     * Returns the value mapped to the given ID, or <code>null</code> if absent.
+     *
+     * @param key the ID
+     * @return the value, if any
+     */
+    @Nullable
+    public V get(@NotNull UUID key) {
+        return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    /**
+     * Returns the value mapped to the ID with the given bits, or <code>null</code> if absent.
+     *
+     * @param most  most significant bits of the ID
+     * @param least least significant bits of the ID
+     * @return the value, if any
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V get(long most, long least) {
+        int i = indexOf(most, least);
+        return i == -1 ? null : (V) values[i];
+    }
+
+    /**
+     * Returns whether there is a value mapped to the given ID.
+     *
+     * @param key the ID
+     * @return if there is a mapping for the ID
+     */
+    public boolean containsKey(@NotNull UUID key) {
+        return indexOf(key.getMostSignificantBits(), key.getLeastSignificantBits()) != -1;
+    }
+
+    /**
+     * Maps the given value to the given ID and returns the previously mapped value, if any.
+     *
+     * @param key   the ID
+     * @param value the value
+     * @return the previously mapped value, if any
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V put(@NotNull UUID key, @NotNull V value) {
+        int i = insert(key);
+        V previous = (V) values[i];
+        values[i] = value;
+        return previous;
+    }
+
+    /**
+     * Removes mapping of the given ID and returns the removed value, if any.
+     *
+     * @param key the ID
+     * @return the removed value, if any
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V remove(@NotNull UUID key) {
+        int i = indexOf(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (i == -1)
+            return null;
+
+        V previous = (V) values[i];
+        removeAt(i);
+        return previous;
+    }
+
+    /**
+     * Passes all mappings to the given consumer. The map must not be modified during the iteration.
+     *
+     * @param consumer the consumer
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(@NotNull BiConsumer<UUID, ? super V> consumer) {
+        for (int i = nextIndex(0); i != -1; i = nextIndex(i + 1))
+            consumer.accept(keyAt(i), (V) values[i]);
+    }
+
+    /**
+     * Passes all values to the given consumer. The map must not be modified during the iteration.
+     *
+     * @param consumer the consumer
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(@NotNull Consumer<? super V> consumer) {
+        for (int i = nextIndex(0); i != -1; i = nextIndex(i + 1))
+            consumer.accept((V) values[i]);
+    }
+
+    /**
+     * Returns a new list containing all values.
+     *
+     * @return the list of all values
+     */
+    @NotNull
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size());
+        forEachValue(list::add);
+        return list;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.collection;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Open-addressing hash set of {@link UUID unique IDs}, keyed directly by their two <code>long</code> halves. Neither
+ * lookups, nor additions of existing elements allocate.
+ * <p>
+ * <b>The set is not thread-safe.</b>
+ */
+public class UUIDSet extends UUIDTable implements Iterable<UUID> {
+
+    /**
+     * Initializes an empty set.
+     */
+    public UUIDSet() {
+        super(false);
+    }
+
+    /**
+     * Adds the given ID to the set. Returns <code>true</code> if it was not present yet.
+     *
+     * @param key the ID to add
+     * @return if the set did not contain the ID yet
+     */
+    public boolean add(@NotNull UUID key) {
+        int size = size();
+        insert(key);
+        return size != size();
+    }
+
+    /**
+     * Removes the given ID from the set. Returns <code>true</code> if it was present.
+     *
+     * @param key the ID to remove
+     * @return if the set contained the ID
+     */
+    public boolean remove(@NotNull UUID key) {
+        int i = indexOf(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        if (i == -1)
+            return false;
+
+        removeAt(i);
+        return true;
+    }
+
+    /**
+     * Returns whether the set contains the given ID.
+     *
+     * @param key the ID
+     * @return if the set contains the ID
+     */
+    public boolean contains(@NotNull UUID key) {
+        return indexOf(key.getMostSignificantBits(), key.getLeastSignificantBits()) != -1;
+    }
+
+    /**
+     * Returns an iterator over the IDs. The set must not be modified during the iteration.
+     *
+     * @return the iterator
+     */
+    @NotNull
+    @Override
+    public Iterator<UUID> iterator() {
+        return new Iterator<UUID>() {
+            // Next index
+            private int next = nextIndex(0);
+
+            @Override
+            public boolean hasNext() {
+                return next != -1;
+            }
+
+            @Override
+            public UUID next() {
+                if (next == -1)
+                    throw new NoSuchElementException();
+
+                UUID key = keyAt(next);
+                next = nextIndex(next + 1);
+                return key;
+            }
+        };
+    }
+
+}
\ No newline at end of file
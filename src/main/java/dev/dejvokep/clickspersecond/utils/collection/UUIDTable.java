@@ -0,0 +1,279 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.collection;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Base of open-addressing (linear probing) hash tables keyed directly by the two <code>long</code> halves of {@link
+ * UUID unique IDs}. Lookups neither allocate, nor hash through {@link UUID#hashCode()} or {@link
+ * java.util.Objects#hash(Object...)}. Only the primitive halves are stored, with occupancy of the slots tracked in a
+ * bitset, so the table holds no {@link UUID} objects (they are only created when iterating).
+ * <p>
+ * <b>Tables are not thread-safe.</b> A table which is no longer modified can, however, be read concurrently, if safely
+ * published (e.g. through a <code>volatile</code> field) - for example as a copy-on-write snapshot.
+ */
+abstract class UUIDTable {
+
+    /**
+     * Default capacity of the table (must be a power of 2).
+     */
+    static final int DEFAULT_CAPACITY = 16;
+
+    // Keys, occupancy bitset
+    long[] most, least, used;
+    // Values (null if a set or primitive)
+    Object[] values;
+    // Primitive values (null if a set or not primitive)
+    int[] ints;
+    // Size and capacity mask
+    int size = 0, mask;
+
+    /**
+     * Initializes the table.
+     *
+     * @param withValues if to store values
+     */
+    UUIDTable(boolean withValues) {
+        allocate(DEFAULT_CAPACITY, withValues, false);
+    }
+
+    /**
+     * Initializes the table storing primitive <code>int</code> values.
+     */
+    UUIDTable() {
+        allocate(DEFAULT_CAPACITY, false, true);
+    }
+
+    /**
+     * Initializes the table as a copy of the given table.
+     *
+     * @param table the table to copy
+     */
+    UUIDTable(@NotNull UUIDTable table) {
+        this.used = table.used.clone();
+        this.most = table.most.clone();
+        this.least = table.least.clone();
+        this.values = table.values == null ? null : table.values.clone();
+        this.ints = table.ints == null ? null : table.ints.clone();
+        this.size = table.size;
+        this.mask = table.mask;
+    }
+
+    /**
+     * Returns the hash of the given ID.
+     *
+     * @param most  most significant bits of the ID
+     * @param least least significant bits of the ID
+     * @return the hash
+     */
+    static int hash(long most, long least) {
+        long hash = most ^ least;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    /**
+     * Returns index of the given ID in the table, or <code>-1</code> if absent.
+     *
+     * @param most  most significant bits of the ID
+     * @param least least significant bits of the ID
+     * @return the index, or <code>-1</code> if absent
+     */
+    int indexOf(long most, long least) {
+        for (int i = hash(most, least) & mask; isUsed(i); i = (i + 1) & mask)
+            if (this.most[i] == most && this.least[i] == least)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns index of the given ID in the table. If absent, inserts it first.
+     *
+     * @param key the ID
+     * @return the index
+     */
+    int insert(@NotNull UUID key) {
+        return insert(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    /**
+     * Returns index of the given ID in the table. If absent, inserts it first.
+     *
+     * @param most  most significant bits of the ID
+     * @param least least significant bits of the ID
+     * @return the index
+     */
+    private int insert(long most, long least) {
+        int i = hash(most, least) & mask;
+        for (; isUsed(i); i = (i + 1) & mask)
+            if (this.most[i] == most && this.least[i] == least)
+                return i;
+
+        // Grow if more than half full
+        if ((size + 1) * 2 > this.most.length) {
+            resize(this.most.length * 2);
+            return insert(most, least);
+        }
+
+        // Insert
+        used[i >>> 6] |= 1L << i;
+        this.most[i] = most;
+        this.least[i] = least;
+        size++;
+        return i;
+    }
+
+    /**
+     * Removes the entry at the given index, shifting back all the following entries of the probe sequence.
+     *
+     * @param i the index
+     */
+    void removeAt(int i) {
+        size--;
+        for (int j = (i + 1) & mask; isUsed(j); j = (j + 1) & mask) {
+            // Ideal index
+            int k = hash(most[j], least[j]) & mask;
+            // If the entry can be moved to the free index
+            if (i <= j ? (k <= i || k > j) : (k <= i && k > j)) {
+                most[i] = most[j];
+                least[i] = least[j];
+                if (values != null)
+                    values[i] = values[j];
+                if (ints != null)
+                    ints[i] = ints[j];
+                i = j;
+            }
+        }
+
+        // Free
+        used[i >>> 6] &= ~(1L << i);
+        if (values != null)
+            values[i] = null;
+    }
+
+    /**
+     * Resizes the table to the given capacity (must be a power of 2).
+     *
+     * @param capacity the new capacity
+     */
+    private void resize(int capacity) {
+        // Old
+        long[] most = this.most, least = this.least, used = this.used;
+        Object[] values = this.values;
+        int[] ints = this.ints;
+
+        // Allocate
+        allocate(capacity, values != null, ints != null);
+        size = 0;
+        // Reinsert
+        for (int i = 0; i < most.length; i++) {
+            if ((used[i >>> 6] & (1L << i)) == 0)
+                continue;
+
+            int index = insert(most[i], least[i]);
+            if (values != null)
+                this.values[index] = values[i];
+            if (ints != null)
+                this.ints[index] = ints[i];
+        }
+    }
+
+    /**
+     * Allocates arrays with the given capacity (must be a power of 2).
+     *
+     * @param capacity   the capacity
+     * @param withValues if to allocate the value array
+     * @param withInts   if to allocate the primitive value array
+     */
+    private void allocate(int capacity, boolean withValues, boolean withInts) {
+        used = new long[(capacity + 63) >>> 6];
+        most = new long[capacity];
+        least = new long[capacity];
+        values = withValues ? new Object[capacity] : null;
+        ints = withInts ? new int[capacity] : null;
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns the index of the first entry at or after the given index, or <code>-1</code> if there is not any.
+     *
+     * @param i the index to start at
+     * @return the index of the next entry, or <code>-1</code>
+     */
+    int nextIndex(int i) {
+        for (; i < most.length; i++)
+            if (isUsed(i))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns whether there is an entry at the given index.
+     *
+     * @param i the index
+     * @return if the index is used
+     */
+    boolean isUsed(int i) {
+        return (used[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Returns the ID stored at the given index, or <code>null</code> if there is none.
+     *
+     * @param i the index
+     * @return the ID, if any
+     */
+    @Nullable
+    UUID keyAt(int i) {
+        return isUsed(i) ? new UUID(most[i], least[i]) : null;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(used, 0L);
+        if (values != null)
+            Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the amount of entries.
+     *
+     * @return the amount of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether there are no entries.
+     *
+     * @return if there are no entries
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+}
\ No newline at end of file
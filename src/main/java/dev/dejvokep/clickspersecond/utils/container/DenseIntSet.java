@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.container;
+
+import java.util.Arrays;
+
+/**
+ * Set of non-negative integers (e.g. slots), stored densely, so iteration only touches the contained values. All
+ * operations run in constant time.
+ * <p>
+ * Removing a value moves the last value into its place; it is therefore safe to remove values while iterating
+ * backwards, from index {@link #size()} <code>- 1</code> down to <code>0</code>.
+ */
+public class DenseIntSet {
+
+    // Values
+    private int[] values = new int[16];
+    private int size = 0;
+    // Index of each value plus one, 0 if absent
+    private int[] positions = new int[16];
+
+    /**
+     * Adds the given value to the set, if not already present.
+     *
+     * @param value the value to add
+     * @return if the value was added (was not already present)
+     */
+    public boolean add(int value) {
+        // Grow
+        if (value >= positions.length)
+            positions = Arrays.copyOf(positions, Math.max(positions.length * 2, value + 1));
+        // Already present
+        if (positions[value] != 0)
+            return false;
+
+        // Grow
+        if (size == values.length)
+            values = Arrays.copyOf(values, values.length * 2);
+        // Add
+        values[size++] = value;
+        positions[value] = size;
+        return true;
+    }
+
+    /**
+     * Removes the given value from the set, if present.
+     *
+     * @param value the value to remove
+     * @return if the value was removed (was present)
+     */
+    public boolean remove(int value) {
+        // Not present
+        if (!contains(value))
+            return false;
+
+        // Move the last value into the freed index
+        int index = positions[value] - 1, last = values[--size];
+        values[index] = last;
+        positions[last] = index + 1;
+        positions[value] = 0;
+        return true;
+    }
+
+    /**
+     * Returns if the given value is present in the set.
+     *
+     * @param value the value
+     * @return if the value is present
+     */
+    public boolean contains(int value) {
+        return value < positions.length && positions[value] != 0;
+    }
+
+    /**
+     * Returns the value at the given index, in range <code>[0, </code>{@link #size()}<code>)</code>.
+     *
+     * @param index the index
+     * @return the value at the given index
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the amount of values in the set.
+     *
+     * @return the size of the set
+     */
+    public int size() {
+        return size;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.container;
+
+import java.util.Arrays;
+
+/**
+ * Fenwick (binary indexed) tree of counts at non-negative indexes. Prefix sums, updates and searches by prefix sum
+ * run in <code>O(log n)</code>, where <code>n</code> is the capacity, which grows as needed.
+ */
+public class FenwickTree {
+
+    // Tree (1-based)
+    private long[] tree;
+    // Total of all counts
+    private long total = 0;
+
+    /**
+     * Initializes the tree with the given initial capacity.
+     *
+     * @param capacity the initial capacity (must be a power of 2)
+     */
+    public FenwickTree(int capacity) {
+        this.tree = new long[capacity + 1];
+    }
+
+    /**
+     * Adds the given delta to the count at the given index.
+     *
+     * @param index the index
+     * @param delta the delta
+     */
+    public void add(int index, long delta) {
+        // Grow
+        if (index >= capacity())
+            grow(index + 1);
+        // Update
+        for (int i = index + 1; i < tree.length; i += i & -i)
+            tree[i] += delta;
+        total += delta;
+    }
+
+    /**
+     * Returns the sum of counts at indexes <code>[0, index]</code>.
+     *
+     * @param index the index (inclusive)
+     * @return the prefix sum
+     */
+    public long prefix(int index) {
+        // Everything
+        if (index >= capacity())
+            return total;
+
+        long sum = 0;
+        for (int i = index + 1; i > 0; i -= i & -i)
+            sum += tree[i];
+        return sum;
+    }
+
+    /**
+     * Returns the lowest index whose prefix sum is at least the given sum, or <code>-1</code> if the total is lower.
+     *
+     * @param sum the sum, at least <code>1</code>
+     * @return the lowest index reaching the sum
+     */
+    public int search(long sum) {
+        // Not reachable
+        if (sum > total)
+            return -1;
+
+        // Descend
+        int position = 0;
+        for (int step = Integer.highestOneBit(capacity()); step > 0; step >>= 1) {
+            if (position + step < tree.length && tree[position + step] < sum) {
+                position += step;
+                sum -= tree[position];
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Returns the total of all counts.
+     *
+     * @return the total
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Clears all counts.
+     */
+    public void clear() {
+        Arrays.fill(tree, 0L);
+        total = 0;
+    }
+
+    /**
+     * Returns the current capacity.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return tree.length - 1;
+    }
+
+    /**
+     * Grows the tree to the next power of 2 fitting the given capacity, rebuilding it.
+     *
+     * @param capacity the min capacity
+     */
+    private void grow(int capacity) {
+        // Counts
+        int previous = capacity();
+        long[] counts = new long[previous];
+        for (int i = 0; i < previous; i++)
+            counts[i] = prefix(i) - (i == 0 ? 0 : prefix(i - 1));
+
+        // Rebuild
+        tree = new long[Integer.highestOneBit(capacity - 1) * 2 + 1];
+        for (int i = 0; i < previous; i++) {
+            if (counts[i] == 0)
+                continue;
+            for (int j = i + 1; j < tree.length; j += j & -j)
+                tree[j] += counts[i];
+        }
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.container;
+
+/**
+ * Sliding maximum over a window of consecutive time indexes (e.g. seconds), implemented as a monotonic deque with
+ * bounded memory. Each index holds the max of all values added at that index; {@link #get(long)} returns the max of
+ * all values added during the last <code>window</code> indexes. Updates run in amortized constant time; reads do not
+ * modify the deque and run in time linear to the amount of outdated values.
+ * <p>
+ * Indexes passed to {@link #add(long, int)} must never decrease.
+ */
+public class SlidingMaximum {
+
+    // Window length
+    private final int window;
+    // Deque of indexes and values, values strictly decreasing from head to tail
+    private final long[] indexes;
+    private final int[] values;
+    // Head and size
+    private int head = 0, size = 0;
+
+    /**
+     * Initializes the sliding maximum.
+     *
+     * @param window the amount of indexes in the window, must be at least <code>1</code>
+     */
+    public SlidingMaximum(int window) {
+        this.window = window;
+        this.indexes = new long[window];
+        this.values = new int[window];
+    }
+
+    /**
+     * Adds the given value at the given index.
+     *
+     * @param index the current index
+     * @param value the value to add
+     */
+    public void add(long index, int value) {
+        // Remove outdated
+        expire(index);
+        // Remove all dominated values from the tail
+        while (size > 0 && values[tail()] <= value)
+            size--;
+        // Dominated by the tail at the same index
+        if (size > 0 && indexes[tail()] == index)
+            return;
+
+        // Add
+        int tail = (head + size++) % window;
+        indexes[tail] = index;
+        values[tail] = value;
+    }
+
+    /**
+     * Returns the max of all values added during the window ending at the given index, or <code>0</code> if there are
+     * none.
+     *
+     * @param index the current index
+     * @return the max value in the window
+     */
+    public int get(long index) {
+        // First up-to-date (values are decreasing, so it is the max)
+        for (int i = 0; i < size; i++) {
+            int position = (head + i) % window;
+            if (indexes[position] > index - window)
+                return values[position];
+        }
+        return 0;
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        head = size = 0;
+    }
+
+    /**
+     * Removes values which are out of the window ending at the given index.
+     *
+     * @param index the current index
+     */
+    private void expire(long index) {
+        while (size > 0 && indexes[head] <= index - window) {
+            head = (head + 1) % window;
+            size--;
+        }
+    }
+
+    /**
+     * Returns the position of the tail value. The deque must not be empty.
+     *
+     * @return the position of the tail
+     */
+    private int tail() {
+        return (head + size - 1) % window;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.container;
+
+import java.util.Arrays;
+
+/**
+ * Allocator of dense integer slots. Released slots are recycled before any new slots are allocated, so all allocated
+ * slots always stay below the {@link #getLimit() limit}, which is never higher than the max amount of slots allocated
+ * at once.
+ */
+public class SlotAllocator {
+
+    // Released slots
+    private int[] released = new int[16];
+    private int releasedSize = 0;
+    // Limit
+    private int limit = 0;
+
+    /**
+     * Allocates and returns a slot.
+     *
+     * @return the allocated slot
+     */
+    public int allocate() {
+        return releasedSize > 0 ? released[--releasedSize] : limit++;
+    }
+
+    /**
+     * Releases the given slot, so it can be recycled. The slot must have been allocated by this allocator and not yet
+     * released.
+     *
+     * @param slot the slot to release
+     */
+    public void release(int slot) {
+        // Grow
+        if (releasedSize == released.length)
+            released = Arrays.copyOf(released, released.length * 2);
+        // Add
+        released[releasedSize++] = slot;
+    }
+
+    /**
+     * Returns the limit (exclusive) of all allocated slots.
+     *
+     * @return the limit of all allocated slots
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+}
\ No newline at end of file
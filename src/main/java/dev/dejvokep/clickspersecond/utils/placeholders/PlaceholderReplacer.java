@@ -17,16 +17,20 @@ package dev.dejvokep.clickspersecond.utils.placeholders;
 
 import dev.dejvokep.boostedyaml.block.implementation.Section;
 import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.handler.sampler.ClickAnalytics;
 import dev.dejvokep.clickspersecond.handler.sampler.Sampler;
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
 import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
 import me.clip.placeholderapi.PlaceholderAPI;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -48,6 +52,8 @@ import java.util.UUID;
  *             <li><code>{cps_best_date}</code> - formatted date (according to {@link #getDateFormat()}) at which the best CPS were achieved (or {@link #getUnknownValue() unknown} if {@link PlayerInfo#isEmpty()})</li>
  *             <li><code>{cps_best_date_millis}</code> - date in millis at which the best CPS were achieved (or {@link #getUnknownValue() unknown} if {@link PlayerInfo#isEmpty()})</li>
  *             <li><code>{cps_best_date_formatted}</code> - alias for <code>{cps_best_date}</code></li>
+ *             <li><code>{cps_best_left}</code>, <code>{cps_best_right}</code>, <code>{cps_best_entity}</code> - the best CPS of the click channel (or {@link #getUnknownValue() unknown} if channels are not tracked)</li>
+ *             <li><code>{cps_rank}</code> - place in the leaderboard (or {@link #getUnknownValue() unknown} if there is no record, or if not supported by the data storage, see {@link dev.dejvokep.clickspersecond.data.DataStorage#getRank(UUID)})</li>
  *             <li>+ placeholders from player group</li>
  *         </ul>
  *     </li>
@@ -55,6 +61,10 @@ import java.util.UUID;
  *         <b>All</b>
  *         <ul>
  *             <li><code>{cps_now}</code> - current CPS</li>
+ *             <li><code>{cps_peak}</code> - the best CPS sampled during the last <code>peak-window</code> seconds</li>
+ *             <li><code>{cps_now_left}</code>, <code>{cps_now_right}</code>, <code>{cps_now_entity}</code> - current CPS of the click channel (or {@link #getUnknownValue() unknown} if channels are not tracked)</li>
+ *             <li><code>{cps_interval_mean}</code>, <code>{cps_interval_deviation}</code>, <code>{cps_interval_min}</code>, <code>{cps_interval_max}</code> - statistics of intervals between clicks in milliseconds (or {@link #getUnknownValue() unknown} if click analytics are disabled or there are no intervals yet)</li>
+ *             <li><code>{cps_interval_count}</code> - amount of intervals between clicks (or {@link #getUnknownValue() unknown} if click analytics are disabled)</li>
  *             <li>+ placeholders from player and info groups</li>
  *         </ul>
  *     </li>
@@ -131,6 +141,14 @@ public class PlaceholderReplacer {
     @NotNull
     public String info(@NotNull PlayerInfo info, @NotNull String message) {
         message = player(info.getUniqueId(), message).replace("{cps_best}", String.valueOf(info.getCPS()));
+        if (message.contains("{cps_best_")) {
+            for (ClickChannel channel : ClickChannel.VALUES)
+                message = message.replace("{cps_best_" + channel.getKey() + "}", info.hasChannels() ? String.valueOf(info.getCPS(channel)) : unknownValue);
+        }
+        if (message.contains("{cps_rank}")) {
+            long rank = info.isEmpty() ? -1 : plugin.getDataStorage().getRank(info.getUniqueId());
+            message = message.replace("{cps_rank}", rank < 0 ? unknownValue : String.valueOf(rank));
+        }
         if (info.isEmpty())
             return message;
 
@@ -149,7 +167,43 @@ public class PlaceholderReplacer {
      */
     @NotNull
     public String all(@NotNull Sampler sampler, @NotNull String message) {
-        return info(sampler.getInfo(), message).replace("{cps_now}", String.valueOf(sampler.getCPS()));
+        message = info(sampler.getInfo(), message).replace("{cps_now}", String.valueOf(sampler.getCPS()))
+                .replace("{cps_peak}", String.valueOf(sampler.getPeak()));
+        if (message.contains("{cps_now_")) {
+            for (ClickChannel channel : ClickChannel.VALUES) {
+                int cps = sampler.getCPS(channel);
+                message = message.replace("{cps_now_" + channel.getKey() + "}", cps < 0 ? unknownValue : String.valueOf(cps));
+            }
+        }
+        return message.contains("{cps_interval_") ? analytics(sampler.getAnalytics(), message) : message;
+    }
+
+    /**
+     * Replaces click analytics placeholders (part of the all group) in the given message.
+     *
+     * @param analytics the analytics to replace for, <code>null</code> if disabled
+     * @param message   the message
+     * @return the message with replaced placeholders
+     */
+    @NotNull
+    private String analytics(@Nullable ClickAnalytics analytics, @NotNull String message) {
+        boolean empty = analytics == null || analytics.getCount() == 0;
+        return message.replace("{cps_interval_mean}", empty ? unknownValue : formatInterval(analytics.getMean()))
+                .replace("{cps_interval_deviation}", empty ? unknownValue : formatInterval(analytics.getDeviation()))
+                .replace("{cps_interval_min}", empty ? unknownValue : formatInterval(analytics.getMin()))
+                .replace("{cps_interval_max}", empty ? unknownValue : formatInterval(analytics.getMax()))
+                .replace("{cps_interval_count}", analytics == null ? unknownValue : String.valueOf(analytics.getCount()));
+    }
+
+    /**
+     * Formats the given interval (in milliseconds) to one decimal place.
+     *
+     * @param interval the interval to format
+     * @return the formatted interval
+     */
+    @NotNull
+    public String formatInterval(double interval) {
+        return String.format(Locale.ROOT, "%.1f", interval);
     }
 
     /**
@@ -16,6 +16,9 @@
 package dev.dejvokep.clickspersecond.utils.placeholders;
 
 import dev.dejvokep.clickspersecond.ClicksPerSecond;
+import dev.dejvokep.clickspersecond.handler.sampler.ClickAnalytics;
+import dev.dejvokep.clickspersecond.handler.sampler.Sampler;
+import dev.dejvokep.clickspersecond.utils.player.ClickChannel;
 import dev.dejvokep.clickspersecond.utils.player.PlayerInfo;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.Bukkit;
@@ -55,6 +58,43 @@ public class StatsExpansion extends PlaceholderExpansion {
         if (params.equals("now") && player != null)
             return player instanceof Player ? convertToUnknown(plugin.getClickHandler().getCPS((Player) player), -1) : replacer.getUnknownValue();
 
+        // Requesting current CPS of a channel
+        if (params.startsWith("now_") && player != null) {
+            Sampler sampler = plugin.getClickHandler().getSampler(player.getUniqueId());
+            ClickChannel channel = getChannel(params.substring(4));
+            return sampler == null || channel == null ? replacer.getUnknownValue() : convertToUnknown(sampler.getCPS(channel), -1);
+        }
+
+        // Requesting peak CPS
+        if (params.equals("peak") && player != null)
+            return player instanceof Player ? convertToUnknown(plugin.getClickHandler().getPeak((Player) player), -1) : replacer.getUnknownValue();
+
+        // Requesting click analytics
+        if (params.startsWith("interval_") && player != null) {
+            Sampler sampler = plugin.getClickHandler().getSampler(player.getUniqueId());
+            ClickAnalytics analytics = sampler == null ? null : sampler.getAnalytics();
+            if (analytics == null)
+                return replacer.getUnknownValue();
+
+            if (params.equals("interval_count"))
+                return String.valueOf(analytics.getCount());
+            if (analytics.getCount() == 0)
+                return replacer.getUnknownValue();
+
+            switch (params) {
+                case "interval_mean":
+                    return replacer.formatInterval(analytics.getMean());
+                case "interval_deviation":
+                    return replacer.formatInterval(analytics.getDeviation());
+                case "interval_min":
+                    return replacer.formatInterval(analytics.getMin());
+                case "interval_max":
+                    return replacer.formatInterval(analytics.getMax());
+                default:
+                    return replacer.getUnknownValue();
+            }
+        }
+
         // Requesting best CPS
         if (params.startsWith("best") && player != null) {
             PlayerInfo info = plugin.getClickHandler().getInfo(player.getUniqueId());
@@ -63,6 +103,10 @@ public class StatsExpansion extends PlaceholderExpansion {
 
             if (params.equals("best_cps"))
                 return String.valueOf(info.getCPS());
+            // Channel
+            ClickChannel channel = getChannel(params.substring(Math.min(params.length(), 5)));
+            if (channel != null)
+                return info.hasChannels() ? String.valueOf(info.getCPS(channel)) : replacer.getUnknownValue();
             if (info.isEmpty())
                 return replacer.getUnknownValue();
 
@@ -73,6 +117,12 @@ public class StatsExpansion extends PlaceholderExpansion {
             return replacer.getUnknownValue();
         }
 
+        // Requesting rank
+        if (params.equals("rank") && player != null) {
+            long rank = plugin.getDataStorage().getRank(player.getUniqueId());
+            return rank < 0 ? replacer.getUnknownValue() : String.valueOf(rank);
+        }
+
         // Requesting leaderboard
         if (params.startsWith("leaderboard")) {
             // Data
@@ -147,6 +197,21 @@ public class StatsExpansion extends PlaceholderExpansion {
         return value == null || value.equals(condition) ? replacer.getUnknownValue() : value.toString();
     }
 
+    /**
+     * Returns the channel with the given {@link ClickChannel#getKey() key}, or <code>null</code> if there is none.
+     *
+     * @param key the key
+     * @return the channel, if any
+     */
+    @Nullable
+    private ClickChannel getChannel(@NotNull String key) {
+        for (ClickChannel channel : ClickChannel.VALUES) {
+            if (channel.getKey().equals(key))
+                return channel;
+        }
+        return null;
+    }
+
     @Override
     public @NotNull
     String getIdentifier() {
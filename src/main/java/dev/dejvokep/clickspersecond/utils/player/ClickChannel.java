@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 https://dejvokep.dev/
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dev.dejvokep.clickspersecond.utils.player;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * Channels of clicks. The primary CPS of a player are computed from all {@link #isPrimary() primary} channels;
+ * multi-channel samplers additionally track CPS and records of each channel separately.
+ */
+public enum ClickChannel {
+
+    /**
+     * Left clicks at air or blocks.
+     */
+    LEFT(true),
+
+    /**
+     * Right clicks at air or blocks.
+     */
+    RIGHT(false),
+
+    /**
+     * Attacks at other entities.
+     */
+    ENTITY(true);
+
+    /**
+     * All channels, indexed by ordinal.
+     */
+    public static final ClickChannel[] VALUES = values();
+
+    // If primary
+    private final boolean primary;
+    // Lowercase name
+    private final String key;
+
+    /**
+     * Initializes the channel.
+     *
+     * @param primary if the channel counts towards the primary CPS
+     */
+    ClickChannel(boolean primary) {
+        this.primary = primary;
+        this.key = name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns if clicks of this channel count towards the primary CPS.
+     *
+     * @return if the channel is primary
+     */
+    public boolean isPrimary() {
+        return primary;
+    }
+
+    /**
+     * Returns the lowercase name of this channel, as used in placeholders and data storages.
+     *
+     * @return the lowercase name
+     */
+    @NotNull
+    public String getKey() {
+        return key;
+    }
+
+}
\ No newline at end of file
@@ -15,9 +15,10 @@
  */
 package dev.dejvokep.clickspersecond.utils.player;
 
+import dev.dejvokep.clickspersecond.utils.clock.Clock;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.Objects;
 import java.util.UUID;
 
 /**
@@ -29,6 +30,9 @@ public class PlayerInfo {
     private final int cps;
     private final long time, fetchTime;
     private final boolean loading;
+    // Per-channel records (null if not tracked)
+    private final int[] channelCPS;
+    private final long[] channelTimes;
 
     /**
      * Initializes as initial player information, which is subject to a pending data storage request, hence {@link
@@ -42,22 +46,28 @@ public class PlayerInfo {
         this.time = 0;
         this.fetchTime = 0;
         this.loading = true;
+        this.channelCPS = null;
+        this.channelTimes = null;
     }
 
     /**
      * Initializes as fully loaded player information.
      *
-     * @param uuid      owner ID
-     * @param cps       CPS
-     * @param time      time at which the CPS were achieved (or <code>0</code> if <code>0</code>)
-     * @param fetchTime time at which this info was fetched
+     * @param uuid         owner ID
+     * @param cps          CPS
+     * @param time         time at which the CPS were achieved (or <code>0</code> if <code>0</code>)
+     * @param fetchTime    monotonic time (see {@link Clock#nanoTime()}) at which this info was fetched
+     * @param channelCPS   per-channel CPS indexed by {@link ClickChannel#ordinal()}, or <code>null</code> if not tracked
+     * @param channelTimes times at which the per-channel CPS were achieved, or <code>null</code> if not tracked
      */
-    private PlayerInfo(@NotNull UUID uuid, int cps, long time, long fetchTime) {
+    private PlayerInfo(@NotNull UUID uuid, int cps, long time, long fetchTime, @Nullable int[] channelCPS, @Nullable long[] channelTimes) {
         this.uuid = uuid;
         this.cps = cps;
         this.time = time;
         this.fetchTime = fetchTime;
         this.loading = false;
+        this.channelCPS = channelCPS;
+        this.channelTimes = channelTimes;
     }
 
     /**
@@ -77,11 +87,11 @@ public class PlayerInfo {
      *
      * @param cps       the CPS
      * @param time      time at which the CPS were achieved
-     * @param fetchTime time at which this info was fetched
+     * @param fetchTime monotonic time (see {@link Clock#nanoTime()}) at which this info was fetched
      * @return the new object with modified properties
      */
     public PlayerInfo setAll(int cps, long time, long fetchTime) {
-        return new PlayerInfo(uuid, cps, time, fetchTime);
+        return new PlayerInfo(uuid, cps, time, fetchTime, channelCPS, channelTimes);
     }
 
     /**
@@ -97,21 +107,61 @@ public class PlayerInfo {
     /**
      * Initializes as fully loaded, but empty player information.
      *
+     * @param uuid      owner ID
+     * @param fetchTime monotonic time (see {@link Clock#nanoTime()}) at which this info was fetched
+     */
+    public static PlayerInfo empty(@NotNull UUID uuid, long fetchTime) {
+        return new PlayerInfo(uuid, 0, 0, fetchTime, null, null);
+    }
+
+    /**
+     * Initializes as fully loaded, but empty player information, fetched now.
+     *
      * @param uuid owner ID
+     * @deprecated the fetch time is now monotonic; use {@link #empty(UUID, long)} with the plugin's clock
      */
+    @Deprecated
     public static PlayerInfo empty(@NotNull UUID uuid) {
-        return new PlayerInfo(uuid, 0, 0, System.currentTimeMillis());
+        return empty(uuid, System.nanoTime());
     }
 
     /**
      * Initializes as fully loaded player information.
      *
+     * @param uuid      owner ID
+     * @param cps       CPS
+     * @param time      time at which the CPS were achieved (or <code>0</code> if <code>0</code>)
+     * @param fetchTime monotonic time (see {@link Clock#nanoTime()}) at which this info was fetched
+     */
+    public static PlayerInfo from(@NotNull UUID uuid, int cps, long time, long fetchTime) {
+        return new PlayerInfo(uuid, cps, time, fetchTime, null, null);
+    }
+
+    /**
+     * Initializes as fully loaded player information, fetched now.
+     *
      * @param uuid owner ID
      * @param cps  CPS
      * @param time time at which the CPS were achieved (or <code>0</code> if <code>0</code>)
+     * @deprecated the fetch time is now monotonic; use {@link #from(UUID, int, long, long)} with the plugin's clock
      */
+    @Deprecated
     public static PlayerInfo from(@NotNull UUID uuid, int cps, long time) {
-        return new PlayerInfo(uuid, cps, time, System.currentTimeMillis());
+        return from(uuid, cps, time, System.nanoTime());
+    }
+
+    /**
+     * Initializes as fully loaded player information with per-channel records. The given arrays are copied.
+     *
+     * @param uuid         owner ID
+     * @param cps          CPS
+     * @param time         time at which the CPS were achieved (or <code>0</code> if <code>0</code>)
+     * @param fetchTime    monotonic time (see {@link Clock#nanoTime()}) at which this info was fetched
+     * @param channelCPS   per-channel CPS indexed by {@link ClickChannel#ordinal()}
+     * @param channelTimes times at which the per-channel CPS were achieved, indexed by {@link ClickChannel#ordinal()}
+     */
+    public static PlayerInfo from(@NotNull UUID uuid, int cps, long time, long fetchTime, @NotNull int[] channelCPS, @NotNull long[] channelTimes) {
+        return new PlayerInfo(uuid, cps, time, fetchTime, channelCPS.clone(), channelTimes.clone());
     }
 
     /**
@@ -133,6 +183,37 @@ public class PlayerInfo {
         return cps;
     }
 
+    /**
+     * Returns the CPS of the given channel, or <code>0</code> if there is no data for the channel (including if
+     * channels are not {@link #hasChannels() tracked}).
+     *
+     * @param channel the channel
+     * @return the CPS of the channel
+     */
+    public int getCPS(@NotNull ClickChannel channel) {
+        return channelCPS == null ? 0 : channelCPS[channel.ordinal()];
+    }
+
+    /**
+     * Returns the time at which the {@link #getCPS(ClickChannel) best CPS} of the given channel were achieved, or
+     * <code>0</code> if there is no data for the channel.
+     *
+     * @param channel the channel
+     * @return the time at which the record of the channel was achieved
+     */
+    public long getTime(@NotNull ClickChannel channel) {
+        return channelTimes == null ? 0 : channelTimes[channel.ordinal()];
+    }
+
+    /**
+     * Returns whether this information contains per-channel records.
+     *
+     * @return if channels are tracked
+     */
+    public boolean hasChannels() {
+        return channelCPS != null;
+    }
+
     /**
      * Returns the time at which the {@link #getCPS() best CPS} were achieved, or <code>0</code> if <code>{@link
      * #getCPS()} == 0</code>.
@@ -144,9 +225,12 @@ public class PlayerInfo {
     }
 
     /**
-     * Returns the time at which this information was fetched.
+     * Returns the monotonic time (see {@link Clock#nanoTime()}) at which this information was fetched.
+     * <p>
+     * <b>Previously, this was wall-clock time in milliseconds ({@link System#currentTimeMillis()}).</b> The value is
+     * only meaningful relative to other monotonic times, e.g. to compute age of the information.
      *
-     * @return the time at which this information was fetched
+     * @return the monotonic time at which this information was fetched
      */
     public long getFetchTime() {
         return fetchTime;
@@ -190,6 +274,6 @@ public class PlayerInfo {
 
     @Override
     public int hashCode() {
-        return Objects.hash(uuid);
+        return uuid.hashCode();
     }
 }
\ No newline at end of file